@@ -0,0 +1,176 @@
+package com.ES.Backend.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.ES.Backend.entity.Certificate;
+import com.ES.Backend.repository.CertificateRepository;
+import com.ES.Backend.service.CertificateAuthority;
+import com.ES.Backend.service.CertificateService;
+import com.ES.Backend.service.CryptoService;
+import com.ES.Backend.service.KeyPairPool;
+import com.ES.Backend.service.SigningKeyCache;
+import com.ES.Backend.signer.KeyProfile;
+import com.ES.Backend.signer.SigningKey;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Material de prueba para los benchmarks. La CA y los certificados de usuario son fijos
+ * (src/jmh/resources/fixtures, regenerables con {@link GenerateFixtures}) para que los resultados
+ * sean comparables entre ejecuciones; los PDFs se generan con un número de páginas dado.
+ */
+public final class BenchmarkFixtures {
+    public static final String P12_PASSWORD = "benchmark";
+    public static final String CA_PASSWORD = "benchmark";
+    private static final String FIXTURES = "/fixtures/";
+
+    private BenchmarkFixtures() {
+    }
+
+    public static String p12Resource(KeyProfile profile) {
+        return "user-" + profile.name().toLowerCase().replace('_', '-') + ".p12";
+    }
+
+    /**
+     * .p12 del usuario de prueba, emitido por la CA fija con el mismo subject y extensiones que producción.
+     */
+    public static byte[] pkcs12(KeyProfile profile) throws IOException {
+        return resource(p12Resource(profile));
+    }
+
+    public static SigningKey signingKey(KeyProfile profile) throws Exception {
+        return SigningKey.fromPkcs12(pkcs12(profile), P12_PASSWORD.toCharArray());
+    }
+
+    /**
+     * Carga la CA fija copiando su keystore a {@code dir}, como se carga al arrancar.
+     */
+    public static CertificateAuthority certificateAuthority(Path dir) throws Exception {
+        Path keystore = dir.resolve("ca.p12");
+        Files.write(keystore, resource("ca.p12"));
+        return new CertificateAuthority(keystore.toString(), CA_PASSWORD, CertificateAuthority.DEFAULT_ALIAS, false);
+    }
+
+    /**
+     * CertificateService con un repositorio en memoria, sin caché de claves y sin reserva de pares.
+     */
+    public static CertificateService certificateService(CertificateAuthority ca, CertificateRepository repository) {
+        SigningKeyCache cache = new SigningKeyCache(new SimpleMeterRegistry(), false, Duration.ofMinutes(5), 100);
+        // Reserva de tamaño 0: cada par se genera en línea
+        KeyPairPool keyPairPool = new KeyPairPool(new SimpleMeterRegistry(), 0, 0, 1, 0);
+        return new CertificateService(repository, new CryptoService(), null, cache, ca, keyPairPool);
+    }
+
+    /**
+     * CertificateRepository respaldado por un mapa: solo save y findById, lo que usan encrypt y decrypt.
+     */
+    public static CertificateRepository inMemoryCertificateRepository() {
+        Map<String, Certificate> store = new ConcurrentHashMap<>();
+        return (CertificateRepository) Proxy.newProxyInstance(
+            CertificateRepository.class.getClassLoader(), new Class<?>[]{CertificateRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "save" -> {
+                    Certificate entity = (Certificate) args[0];
+                    if (entity.getId() == null) {
+                        entity.setId(UUID.randomUUID().toString());
+                    }
+                    store.put(entity.getId(), entity);
+                    yield entity;
+                }
+                case "findById" -> Optional.ofNullable(store.get((String) args[0]));
+                case "toString" -> "InMemoryCertificateRepository";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    /**
+     * Sesión WebSocket abierta cuyo envío no hace nada salvo contar en {@code delivered}:
+     * mide el coste del servidor sin red ni cliente.
+     */
+    public static WebSocketSession webSocketSession(String id, LongAdder delivered) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+            WebSocketSession.class.getClassLoader(), new Class<?>[]{WebSocketSession.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getId" -> id;
+                case "isOpen" -> true;
+                case "getAcceptedProtocol" -> null;
+                case "getExtensions" -> List.of();
+                case "sendMessage" -> {
+                    delivered.increment();
+                    yield null;
+                }
+                case "close" -> null;
+                case "toString" -> "BenchmarkSession[" + id + "]";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    /**
+     * PDF A4 con texto en cada página, para firmar documentos de distintos tamaños.
+     */
+    public static byte[] pdf(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(font, 11);
+                    cs.setLeading(14);
+                    cs.newLineAtOffset(50, 780);
+                    for (int line = 0; line < 50; line++) {
+                        cs.showText("Página " + (i + 1) + ", línea " + (line + 1) + ": documento de prueba para la firma PAdES.");
+                        cs.newLine();
+                    }
+                    cs.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    public static void deleteDirectory(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(FIXTURES + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Falta el fixture " + name + "; genéralo con GenerateFixtures");
+            }
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ES.Backend.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ES.Backend.service.CertificateAuthority;
+import com.ES.Backend.service.CertificateService;
+import com.ES.Backend.signer.KeyProfile;
+
+/**
+ * Emisión de un certificado de usuario con la CA fija ya cargada: construcción y firma en memoria,
+ * sin tocar disco, y empaquetado del .p12. La generación del par de claves queda fuera de la medición.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificateIssuanceBenchmark {
+
+    @Param({"RSA_2048", "EC_P256"})
+    public KeyProfile profile;
+
+    private Path workDir;
+    private CertificateService certificateService;
+    private KeyPair userKeys;
+    private X509Certificate userCertificate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("cert-issuance-bench");
+        CertificateAuthority ca = BenchmarkFixtures.certificateAuthority(workDir);
+        certificateService = BenchmarkFixtures.certificateService(ca, BenchmarkFixtures.inMemoryCertificateRepository());
+        userKeys = profile.generateKeyPair();
+        userCertificate = certificateService.generateUserCertificate("Benchmark User", "bench@example.com", "ES", userKeys.getPublic());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public X509Certificate generateUserCertificate() throws Exception {
+        return certificateService.generateUserCertificate("Benchmark User", "bench@example.com", "ES", userKeys.getPublic());
+    }
+
+    @Benchmark
+    public byte[] generarP12() throws Exception {
+        return certificateService.generarP12(userCertificate, userKeys.getPrivate(), BenchmarkFixtures.P12_PASSWORD);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ES.Backend.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.ES.Backend.service.CertificateService;
+import com.ES.Backend.signer.KeyProfile;
+import com.ES.Backend.signer.SigningKey;
+
+/**
+ * CertificateService.encrypt y decrypt sobre los .p12 fijos, con un repositorio en memoria
+ * para medir solo el coste criptográfico (PBKDF2 + AES), y el desbloqueo completo hasta la SigningKey.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificateStorageBenchmark {
+
+    @Param({"RSA_2048", "EC_P256"})
+    public KeyProfile profile;
+
+    private final char[] password = BenchmarkFixtures.P12_PASSWORD.toCharArray();
+    private Path workDir;
+    private CertificateService certificateService;
+    private MockMultipartFile p12File;
+    private String certificateId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("cert-storage-bench");
+        certificateService = BenchmarkFixtures.certificateService(
+            BenchmarkFixtures.certificateAuthority(workDir), BenchmarkFixtures.inMemoryCertificateRepository());
+        p12File = new MockMultipartFile("file", BenchmarkFixtures.p12Resource(profile), "application/x-pkcs12",
+            BenchmarkFixtures.pkcs12(profile));
+        certificateId = certificateService.encrypt("bench@example.com", p12File, password);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+        return certificateService.encrypt("bench@example.com", p12File, password);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        return certificateService.decrypt(certificateId, password);
+    }
+
+    @Benchmark
+    public SigningKey unlockSigningKey() throws Exception {
+        return certificateService.unlockSigningKey(certificateId, password);
+    }
+}
@@ -0,0 +1,70 @@
+package com.ES.Backend.benchmark;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ES.Backend.service.CryptoService;
+import com.ES.Backend.signer.KeyProfile;
+
+/**
+ * Primitivas de CryptoService: la derivación PBKDF2 que paga cada desbloqueo de certificado
+ * y el cifrado AES del .p12 fijo, por separado para ver qué domina.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+    private final CryptoService cryptoService = new CryptoService();
+    private final char[] password = BenchmarkFixtures.P12_PASSWORD.toCharArray();
+
+    private byte[] salt;
+    private byte[] iv;
+    private SecretKey key;
+    private byte[] p12;
+    private byte[] encrypted;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SecureRandom random = new SecureRandom();
+        salt = new byte[16];
+        iv = new byte[16];
+        random.nextBytes(salt);
+        random.nextBytes(iv);
+        key = cryptoService.deriveKey(password, salt);
+        p12 = BenchmarkFixtures.pkcs12(KeyProfile.RSA_2048);
+        encrypted = cryptoService.cipher(Cipher.ENCRYPT_MODE, key, iv).doFinal(p12);
+    }
+
+    @Benchmark
+    public SecretKey deriveKey() throws Exception {
+        return cryptoService.deriveKey(password, salt);
+    }
+
+    @Benchmark
+    public byte[] cipherEncrypt() throws Exception {
+        return cryptoService.cipher(Cipher.ENCRYPT_MODE, key, iv).doFinal(p12);
+    }
+
+    @Benchmark
+    public byte[] cipherDecrypt() throws Exception {
+        return cryptoService.cipher(Cipher.DECRYPT_MODE, key, iv).doFinal(encrypted);
+    }
+}
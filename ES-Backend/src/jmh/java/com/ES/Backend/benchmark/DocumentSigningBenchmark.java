@@ -0,0 +1,85 @@
+package com.ES.Backend.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.ES.Backend.service.CertificateService;
+import com.ES.Backend.service.PdfSignatureService;
+import com.ES.Backend.signer.KeyProfile;
+import com.ES.Backend.signer.SignaturePlacement;
+import com.ES.Backend.signer.SigningKey;
+
+/**
+ * Camino completo de un trabajo de firma de un documento (SigningJobService.runDocumentJob):
+ * descifrado del certificado guardado, carga del .p12, firma PAdES y reemplazo atómico del archivo.
+ * Solo quedan fuera Mongo y Postgres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentSigningBenchmark {
+
+    @Param({"RSA_2048", "EC_P256"})
+    public KeyProfile profile;
+
+    @Param({"1", "20", "200"})
+    public int pages;
+
+    private final char[] password = BenchmarkFixtures.P12_PASSWORD.toCharArray();
+    private final SignaturePlacement placement = SignaturePlacement.at(0, 100, 100);
+    private Path workDir;
+    private Path document;
+    private byte[] pdf;
+    private CertificateService certificateService;
+    private PdfSignatureService pdfSignatureService;
+    private String certificateId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("document-signing-bench");
+        certificateService = BenchmarkFixtures.certificateService(
+            BenchmarkFixtures.certificateAuthority(workDir), BenchmarkFixtures.inMemoryCertificateRepository());
+        certificateId = certificateService.encrypt("bench@example.com",
+            new MockMultipartFile("file", BenchmarkFixtures.p12Resource(profile), "application/x-pkcs12", BenchmarkFixtures.pkcs12(profile)),
+            password);
+        pdfSignatureService = new PdfSignatureService(0);
+        pdf = BenchmarkFixtures.pdf(pages);
+        document = workDir.resolve("document.pdf");
+    }
+
+    // Cada firma parte del documento sin firmar; la escritura queda fuera de la medición
+    @Setup(Level.Invocation)
+    public void resetDocument() throws Exception {
+        Files.write(document, pdf);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public void signDocument() throws Exception {
+        SigningKey key = certificateService.unlockSigningKey(certificateId, password);
+        pdfSignatureService.signFile(document, key, placement);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ES.Backend.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+
+import com.ES.Backend.service.CertificateAuthority;
+import com.ES.Backend.service.CertificateService;
+import com.ES.Backend.signer.KeyProfile;
+
+/**
+ * Regenera los fixtures de los benchmarks: la CA (RSA 4096, como {@code init-ca}) y un .p12 de usuario
+ * por perfil, emitidos con el mismo código que producción. Solo hace falta si cambia la emisión.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbench.main=com.ES.Backend.benchmark.GenerateFixtures -Dbench=src/jmh/resources/fixtures
+ * </pre>
+ */
+public final class GenerateFixtures {
+
+    private GenerateFixtures() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "src/jmh/resources/fixtures").toAbsolutePath();
+        Files.createDirectories(dir);
+        Path caKeystore = dir.resolve("ca.p12");
+        Files.deleteIfExists(caKeystore);
+        CertificateAuthority.createKeystore(caKeystore, BenchmarkFixtures.CA_PASSWORD.toCharArray(), CertificateAuthority.DEFAULT_ALIAS);
+
+        CertificateAuthority ca = new CertificateAuthority(caKeystore.toString(), BenchmarkFixtures.CA_PASSWORD,
+            CertificateAuthority.DEFAULT_ALIAS, false);
+        CertificateService service = BenchmarkFixtures.certificateService(ca, BenchmarkFixtures.inMemoryCertificateRepository());
+        for (KeyProfile profile : KeyProfile.values()) {
+            KeyPair keyPair = profile.generateKeyPair();
+            X509Certificate cert = service.generateUserCertificate("Benchmark User", "bench@example.com", "ES", keyPair.getPublic());
+            byte[] p12 = service.generarP12(cert, keyPair.getPrivate(), BenchmarkFixtures.P12_PASSWORD);
+            Files.write(dir.resolve(BenchmarkFixtures.p12Resource(profile)), p12);
+        }
+        System.out.println("Fixtures escritos en " + dir);
+    }
+}
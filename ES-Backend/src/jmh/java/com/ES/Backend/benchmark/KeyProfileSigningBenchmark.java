@@ -0,0 +1,65 @@
+package com.ES.Backend.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ES.Backend.signer.KeyProfile;
+import com.ES.Backend.signer.PadesSigner;
+import com.ES.Backend.signer.SignaturePlacement;
+import com.ES.Backend.signer.SigningKey;
+
+/**
+ * Tiempo de firma por perfil de clave (certificados fijos) con la reserva de /Contents automática, como en producción.
+ * El crecimiento del PDF por firma se imprime al terminar cada combinación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyProfileSigningBenchmark {
+
+    @Param({"RSA_2048", "EC_P256"})
+    public KeyProfile profile;
+
+    @Param({"1", "20"})
+    public int pages;
+
+    private byte[] pdf;
+    private SigningKey key;
+    private PadesSigner signer;
+    private SignaturePlacement placement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        key = BenchmarkFixtures.signingKey(profile);
+        pdf = BenchmarkFixtures.pdf(pages);
+        signer = new PadesSigner(0);
+        placement = SignaturePlacement.at(0, 100, 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void reportSize() throws Exception {
+        int growth = signer.sign(pdf, key, placement).length - pdf.length;
+        System.out.println("\n" + profile + ", " + pages + " páginas: +" + growth + " bytes por firma");
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        return signer.sign(pdf, key, placement);
+    }
+}
@@ -0,0 +1,102 @@
+package com.ES.Backend.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ES.Backend.service.CaMaterialExporter;
+import com.ES.Backend.signer.KeyProfile;
+import com.ES.Backend.signer.PadesSigner;
+import com.ES.Backend.signer.SignaturePlacement;
+import com.ES.Backend.signer.SigningKey;
+
+/**
+ * Compara una firma completa con el motor Java frente a la ejecución de firmar-pdf.py.
+ * Ambos caminos parten del .p12 descifrado, como en DocumentMetadataController.signDocument.
+ * El caso del script requiere python con pyHanko instalado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfSigningBenchmark {
+    private static final String SCRIPT = "src/main/java/com/ES/Backend/signer/firmar-pdf.py";
+
+    @Param({"1", "20", "200"})
+    public int pages;
+
+    private byte[] pdf;
+    private byte[] p12;
+    private PadesSigner signer;
+    private SignaturePlacement placement;
+    private Path workDir;
+    private Path input;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        p12 = BenchmarkFixtures.pkcs12(KeyProfile.RSA_2048);
+        SigningKey key = SigningKey.fromPkcs12(p12, BenchmarkFixtures.P12_PASSWORD.toCharArray());
+        pdf = BenchmarkFixtures.pdf(pages);
+        signer = new PadesSigner(8192);
+        placement = SignaturePlacement.at(0, 100, 100);
+
+        workDir = Files.createTempDirectory("pdf-signing-bench");
+        input = workDir.resolve("input.pdf");
+        Files.write(input, pdf);
+        // firmar-pdf.py busca la cadena de la CA junto al .p12
+        Files.write(workDir.resolve("ca-cert.pem"), CaMaterialExporter.toPem(new X509Certificate[]{key.chain()[1]}));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public byte[] javaEngine() throws Exception {
+        SigningKey key = SigningKey.fromPkcs12(p12, BenchmarkFixtures.P12_PASSWORD.toCharArray());
+        return signer.sign(pdf, key, placement);
+    }
+
+    /**
+     * Camino anterior: .p12 a disco, proceso python y lectura del PDF firmado.
+     */
+    @Benchmark
+    public byte[] pythonScript() throws Exception {
+        Path tempP12 = workDir.resolve("temp.p12");
+        Path output = workDir.resolve("output.pdf");
+        Files.write(tempP12, p12);
+        ProcessBuilder pb = new ProcessBuilder(
+            "python", SCRIPT,
+            tempP12.toString(), BenchmarkFixtures.P12_PASSWORD, input.toString(), output.toString(),
+            String.valueOf(placement.page()), String.valueOf(placement.x1()), String.valueOf(placement.y1()),
+            String.valueOf(placement.x2()), String.valueOf(placement.y2())
+        );
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        String log = new String(process.getInputStream().readAllBytes());
+        int exitCode = process.waitFor();
+        Files.deleteIfExists(tempP12);
+        if (exitCode != 0) {
+            throw new IllegalStateException("firmar-pdf.py terminó con código " + exitCode + ": " + log);
+        }
+        return Files.readAllBytes(output);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ES.Backend.benchmark;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+
+import com.ES.Backend.websocket.OutboundMessageDispatcher;
+import com.ES.Backend.websocket.SessionRegistry;
+import com.ES.Backend.websocket.WsMessage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Coste en el hilo que notifica de repartir un aviso entre {@code sessions} sesiones (1 de cada 100 es ADMIN).
+ * {@code adminScanAndFormat} reproduce el reparto anterior (recorrer todas las sesiones y formatear
+ * el JSON por sesión) como referencia frente al índice por rol.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketFanOutBenchmark {
+    private static final int ADMIN_EVERY = 100;
+
+    @Param({"1000", "10000"})
+    public int sessions;
+
+    private OutboundMessageDispatcher outbound;
+    private SessionRegistry registry;
+    private final LongAdder delivered = new LongAdder();
+    // Estado equivalente al de antes del índice: rol por sesión
+    private final Map<String, String> sessionToUserRole = new ConcurrentHashMap<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        outbound = new OutboundMessageDispatcher(new SimpleMeterRegistry(), 256, "drop-oldest", 2, 0);
+        registry = new SessionRegistry(outbound, 100_000, 10);
+        for (int i = 0; i < sessions; i++) {
+            String id = "s" + i;
+            String role = i % ADMIN_EVERY == 0 ? "ADMIN" : "USER";
+            registry.register(BenchmarkFixtures.webSocketSession(id, delivered));
+            registry.subscribe(id, "user" + i + "@example.com", role, (long) i);
+            sessionToUserRole.put(id, role);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        outbound.shutdown();
+    }
+
+    @Benchmark
+    public int adminBroadcast() {
+        return registry.sendToRole("ADMIN", WsMessage.Notification.toAdmin("Nueva Solicitud de Certificado",
+            "El usuario user@example.com ha solicitado un certificado digital."));
+    }
+
+    @Benchmark
+    public int adminScanAndFormat() {
+        int count = 0;
+        for (Map.Entry<String, String> entry : sessionToUserRole.entrySet()) {
+            if ("ADMIN".equals(entry.getValue())) {
+                String notification = String.format(
+                    "{\"type\":\"NOTIFICATION\",\"target\":\"ADMIN\",\"title\":\"%s\",\"message\":\"%s\",\"timestamp\":\"%s\"}",
+                    "Nueva Solicitud de Certificado", "El usuario user@example.com ha solicitado un certificado digital.",
+                    Instant.now());
+                outbound.send(entry.getKey(), new TextMessage(notification));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int userNotification() {
+        next = (next + 1) % sessions;
+        return registry.sendToUser("user" + next + "@example.com",
+            WsMessage.Notification.toUser("Firma Completada", "El documento ha sido firmado exitosamente por todos los usuarios"));
+    }
+}
@@ -2,11 +2,20 @@ package com.ES.Backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.ES.Backend.service.CertificateAuthority;
 
 @SpringBootApplication
+@EnableScheduling
 public class EsBackendApplication {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		// java -jar app.jar init-ca [ruta]: crea el keystore de la CA y termina
+		if (args.length > 0 && "init-ca".equals(args[0])) {
+			CertificateAuthority.initFromCommandLine(args);
+			return;
+		}
 		SpringApplication.run(EsBackendApplication.class, args);
 	}
 
@@ -0,0 +1,50 @@
+package com.ES.Backend.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Las tablas que pasaron de ids IDENTITY a secuencia ya tienen filas: al arrancar se adelanta la secuencia
+ * (creada por Hibernate empezando en 1) por encima del id más alto. Solo actúa si la secuencia está por
+ * detrás, así que con varios nodos arrancando a la vez no retrocede una reserva ya hecha.
+ */
+@Component
+public class IdSequenceAligner {
+    // tabla -> secuencia, con el mismo allocationSize que la entidad
+    private static final Map<String, String> SEQUENCES = Map.of(
+        "signature_request", "signature_request_seq",
+        "signature_request_user", "signature_request_user_seq");
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depende de la EntityManagerFactory para ejecutarse después de que Hibernate cree las secuencias
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void align() {
+        SEQUENCES.forEach((table, sequence) -> {
+            try {
+                // Sin filas si la secuencia ya estaba por delante del id más alto
+                List<Long> values = jdbcTemplate.queryForList(
+                    "SELECT setval('" + sequence + "', m.max_id + " + ALLOCATION_SIZE + ") FROM"
+                        + " (SELECT MAX(id) AS max_id FROM " + table + ") m, " + sequence + " s"
+                        + " WHERE m.max_id >= s.last_value",
+                    Long.class);
+                if (!values.isEmpty()) {
+                    System.out.println("🔢 Secuencia " + sequence + " adelantada a " + values.get(0) + " (ids existentes en " + table + ")");
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ No se pudo alinear la secuencia " + sequence + ": " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.ES.Backend.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.ES.Backend.repository.ClusterNodeRepository;
+import com.ES.Backend.repository.SessionPresenceRepository;
+import com.ES.Backend.websocket.cluster.ClusterTransport;
+import com.ES.Backend.websocket.cluster.InMemoryClusterTransport;
+import com.ES.Backend.websocket.cluster.InMemoryPresenceDirectory;
+import com.ES.Backend.websocket.cluster.JpaPresenceDirectory;
+import com.ES.Backend.websocket.cluster.PostgresClusterTransport;
+import com.ES.Backend.websocket.cluster.PresenceDirectory;
+
+/**
+ * websocket.cluster.mode: none (una sola réplica, todo en memoria) o postgres (LISTEN/NOTIFY y presencia en tablas).
+ */
+@Configuration
+public class WebSocketClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "websocket.cluster.mode", havingValue = "postgres")
+    public ClusterTransport postgresClusterTransport(DataSource dataSource,
+                                                     @Value("${websocket.cluster.poll-ms:500}") int pollMillis,
+                                                     @Value("${websocket.cluster.reconnect-ms:5000}") long reconnectMillis) {
+        return new PostgresClusterTransport(dataSource, pollMillis, reconnectMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "websocket.cluster.mode", havingValue = "postgres")
+    public PresenceDirectory jpaPresenceDirectory(ClusterNodeRepository nodeRepository,
+                                                  SessionPresenceRepository presenceRepository,
+                                                  @Value("${websocket.cluster.node-timeout-ms:30000}") long nodeTimeoutMillis) {
+        return new JpaPresenceDirectory(nodeRepository, presenceRepository, Duration.ofMillis(nodeTimeoutMillis));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "websocket.cluster.mode", havingValue = "none", matchIfMissing = true)
+    public ClusterTransport localClusterTransport() {
+        return new InMemoryClusterTransport(new InMemoryClusterTransport.Hub());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "websocket.cluster.mode", havingValue = "none", matchIfMissing = true)
+    public PresenceDirectory localPresenceDirectory() {
+        return new InMemoryPresenceDirectory();
+    }
+}
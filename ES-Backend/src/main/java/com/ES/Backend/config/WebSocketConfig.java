@@ -1,6 +1,7 @@
 package com.ES.Backend.config;
 
 import com.ES.Backend.controller.WebSocketController;
+import com.ES.Backend.websocket.HandshakeAuthInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,9 +17,14 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private WebSocketController webSocketController;
 
+    // Valida el token y limita las conexiones nuevas antes de aceptar el upgrade
+    @Autowired
+    private HandshakeAuthInterceptor handshakeAuthInterceptor;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(webSocketController, "/ws")
+                .addInterceptors(handshakeAuthInterceptor)
                 .setAllowedOriginPatterns("*");
     }
 
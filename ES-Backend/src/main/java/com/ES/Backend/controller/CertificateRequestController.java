@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ES.Backend.data.BulkResultDTO;
 import com.ES.Backend.data.CertRequestDTO;
 import com.ES.Backend.entity.CertificateRequest;
 import com.ES.Backend.service.CertificateRequestService;
@@ -41,7 +42,8 @@ public class CertificateRequestController {
             request.getCorreo(),
             request.getNombre(),
             request.getOrganizacion(),
-            request.getPassword()
+            request.getPassword(),
+            request.getKeyProfile()
         );
         
         return ResponseEntity.ok(certificateRequest);
@@ -111,5 +113,37 @@ public class CertificateRequestController {
         return ResponseEntity.ok(rejectedRequest);
     }
 
+    @PutMapping("/bulk/approve")
+    public ResponseEntity<BulkResultDTO> approveRequests(
+            @RequestBody BulkRequestDTO bulkRequest,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        
+        String token = authHeader.substring(7);
+        String adminEmail = jwtService.extractUser(token);
+        
+        try {
+            return ResponseEntity.ok(service.approveRequests(bulkRequest.ids(), adminEmail));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/bulk/reject")
+    public ResponseEntity<BulkResultDTO> rejectRequests(
+            @RequestBody BulkRequestDTO bulkRequest,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        
+        String token = authHeader.substring(7);
+        String adminEmail = jwtService.extractUser(token);
+        
+        try {
+            return ResponseEntity.ok(service.rejectRequests(bulkRequest.ids(), adminEmail, bulkRequest.reason()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     public record RejectRequestDTO(String reason) {}
+
+    public record BulkRequestDTO(List<Long> ids, String reason) {}
 } 
\ No newline at end of file
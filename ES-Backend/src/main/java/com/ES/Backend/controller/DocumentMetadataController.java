@@ -2,9 +2,11 @@ package com.ES.Backend.controller;
 
 import com.ES.Backend.entity.Certificate;
 import com.ES.Backend.entity.DocumentMetadata;
+import com.ES.Backend.entity.SigningJob;
 import com.ES.Backend.service.CertificateService;
 import com.ES.Backend.service.DocumentMetadataService;
 import com.ES.Backend.service.JwtService;
+import com.ES.Backend.service.SigningJobService;
 
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpHeaders;
@@ -12,7 +14,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.MediaType;
@@ -26,24 +27,26 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/documents")
 public class DocumentMetadataController {
 
-    @Value("${tmp.path}")
-    private String tmpPath;
-
     private final DocumentMetadataService service;
     private final CertificateService certificateService;
+    private final SigningJobService signingJobService;
     private final JwtService jwtService;
 
-    public DocumentMetadataController(DocumentMetadataService service, JwtService jwtService, CertificateService certificateService) {
+    public DocumentMetadataController(DocumentMetadataService service, JwtService jwtService, CertificateService certificateService,
+                                      SigningJobService signingJobService) {
         this.service = service;
         this.jwtService = jwtService;
         this.certificateService = certificateService;
+        this.signingJobService = signingJobService;
     }
 
     @PostMapping("/upload")
@@ -191,6 +194,9 @@ public class DocumentMetadataController {
                 System.out.println("[signDocument] Usuario no autorizado para este documento.");
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No autorizado");
             }
+            if (metadata.isSigned()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("El documento ya está firmado");
+            }
 
             // 2. Obtener el certificado de la base de datos
             Optional<Certificate> certOpt = certificateService.getCertificateById(certificateId);
@@ -201,71 +207,13 @@ public class DocumentMetadataController {
             Certificate certEntity = certOpt.get();
             System.out.println("[signDocument] Certificado encontrado: " + certEntity.getFilename());
 
-            // 3. Descifrar el .p12
-            byte[] p12Bytes = certificateService.decrypt(certificateId, certPassword.toCharArray());
-            System.out.println("[signDocument] Certificado descifrado, tamaño: " + p12Bytes.length + " bytes");
-            String rootPath = Paths.get("files").toAbsolutePath().toString();
-            String tempP12Path = rootPath + java.io.File.separator + tmpPath + java.io.File.separator + user + "_temp.p12";
-            System.out.println("[signDocument] Ruta temporal para .p12: " + tempP12Path);
-            java.nio.file.Files.write(java.nio.file.Paths.get(tempP12Path), p12Bytes);
-
-            String pdfInput = metadata.getFilePath();
-            String pdfOutput = pdfInput.replace(".pdf", "_signed.pdf");
-            //String stylePath = "src/main/java/com/ES/Backend/signer/stamp-style.yml";
-            System.out.println("[signDocument] PDF de entrada: " + pdfInput);
-            System.out.println("[signDocument] PDF de salida: " + pdfOutput);
-            //System.out.println("[signDocument] Style YAML: " + stylePath);
-
-            // 4. Ejecutar script de Python
-            ProcessBuilder pb = new ProcessBuilder(
-                "python", "src/main/java/com/ES/Backend/signer/firmar-pdf.py",
-                tempP12Path, certPassword, pdfInput, pdfOutput,
-                String.valueOf(page), String.valueOf(x), String.valueOf(y),
-                String.valueOf(x+300), String.valueOf(y+100)
-            );
-            pb.redirectErrorStream(true);
-            System.out.println("[signDocument] Ejecutando script Python: " + pb.command());
-            Process process = pb.start();
-            java.io.InputStream is = process.getInputStream();
-            String output;
-            try (java.util.Scanner s = new java.util.Scanner(is).useDelimiter("\\A")) {
-                output = s.hasNext() ? s.next() : "";
-            }
-            System.out.println("[signDocument] Salida del script Python:\n" + output);
-            int exitCode = process.waitFor();
-            System.out.println("[signDocument] Código de salida del script: " + exitCode);
-
-            // 5. Borrar el archivo temporal
-            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get(tempP12Path));
-            System.out.println("[signDocument] Archivo temporal eliminado: " + tempP12Path);
-
-            if (exitCode != 0) {
-                System.out.println("[signDocument] Error al firmar PDF");
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al firmar PDF");
-            }
-
-            // 6. Reemplazar el archivo original por el firmado y actualizar metadata
-            try {
-                // Eliminar el original
-                java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get(pdfInput));
-                // Renombrar el firmado al nombre original
-                java.nio.file.Files.move(
-                    java.nio.file.Paths.get(pdfOutput),
-                    java.nio.file.Paths.get(pdfInput)
-                );
-                System.out.println("[signDocument] Archivo firmado reemplazó al original: " + pdfInput);
-            } catch (Exception e) {
-                System.out.println("[signDocument] Error al reemplazar el archivo original: " + e.getMessage());
-                e.printStackTrace();
-                return ResponseEntity.internalServerError().body("Error al reemplazar el archivo original: " + e.getMessage());
-            }
-
-            metadata.setFilePath(pdfInput);
-            metadata.setSigned(true);
-            service.updateDocument(metadata);
-            System.out.println("[signDocument] Documento firmado y metadata actualizada.");
+            // 3. Encolar la firma; un worker la procesa y avisa por WebSocket (también si la contraseña es incorrecta)
+            char[] password = certPassword.toCharArray();
+            SigningJob job = signingJobService.enqueueDocument(user, id, certificateId, password, page, x, y);
+            Arrays.fill(password, '\0');
+            System.out.println("[signDocument] Trabajo de firma encolado: " + job.getId());
 
-            return ResponseEntity.ok("Documento firmado correctamente");
+            return ResponseEntity.accepted().body(Map.of("jobId", job.getId(), "status", job.getStatus()));
         } catch (Exception e) {
             System.out.println("[signDocument] Excepción: " + e.getMessage());
             e.printStackTrace();
@@ -1,8 +1,14 @@
 package com.ES.Backend.controller;
 
+import com.ES.Backend.data.KeysetPageDTO;
+import com.ES.Backend.data.SignatureInboxItemDTO;
+import com.ES.Backend.data.SignatureOutboxItemDTO;
+import com.ES.Backend.data.SignatureRequestDTO;
 import com.ES.Backend.entity.SignatureRequest;
 import com.ES.Backend.entity.SignatureRequestUser;
+import com.ES.Backend.service.JwtService;
 import com.ES.Backend.service.SignatureRequestService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,60 +19,70 @@ import java.util.Optional;
 @RequestMapping("/api/signature-requests")
 public class SignatureRequestController {
     private final SignatureRequestService signatureRequestService;
+    private final JwtService jwtService;
 
-    public SignatureRequestController(SignatureRequestService signatureRequestService) {
+    public SignatureRequestController(SignatureRequestService signatureRequestService, JwtService jwtService) {
         this.signatureRequestService = signatureRequestService;
+        this.jwtService = jwtService;
     }
 
-    // 1. Crear una solicitud de firma grupal
+    // 1. Crear una solicitud de firma grupal (queda en la bandeja de salida de quien la crea)
     @PostMapping
-    public ResponseEntity<SignatureRequest> createSignatureRequest(@RequestBody SignatureRequest request) {
-        SignatureRequest created = signatureRequestService.createSignatureRequest(request);
+    public ResponseEntity<SignatureRequest> createSignatureRequest(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+            @RequestBody SignatureRequest request) {
+        String userEmail = jwtService.extractUser(authHeader.substring(7));
+        SignatureRequest created = signatureRequestService.createSignatureRequest(request, userEmail);
         return ResponseEntity.ok(created);
     }
 
+    // Bandeja de entrada: solicitudes en las que el usuario firma, por estado de su respuesta
+    // (sin status: todas). Se pagina pasando el nextCursor recibido como before
+    @GetMapping("/inbox")
+    public KeysetPageDTO<SignatureInboxItemDTO> getInbox(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit) {
+        String userEmail = jwtService.extractUser(authHeader.substring(7));
+        return signatureRequestService.getInbox(userEmail, status, before, limit);
+    }
+
+    // Bandeja de salida: solicitudes creadas por el usuario, por estado de la solicitud
+    @GetMapping("/outbox")
+    public KeysetPageDTO<SignatureOutboxItemDTO> getOutbox(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit) {
+        String userEmail = jwtService.extractUser(authHeader.substring(7));
+        return signatureRequestService.getOutbox(userEmail, status, before, limit);
+    }
+
     // 2. Obtener una solicitud de firma por ID
     @GetMapping("/{id}")
-    public ResponseEntity<SignatureRequest> getSignatureRequest(@PathVariable Long id) {
-        Optional<SignatureRequest> request = signatureRequestService.getSignatureRequest(id);
+    public ResponseEntity<SignatureRequestDTO> getSignatureRequest(@PathVariable Long id) {
+        Optional<SignatureRequestDTO> request = signatureRequestService.getSignatureRequest(id);
         return request.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // 3. Listar todas las solicitudes de firma
-    @GetMapping
-    public List<SignatureRequest> getAllSignatureRequests() {
-        return signatureRequestService.getAllSignatureRequests();
-    }
-
-    // 4. Guardar o actualizar la respuesta de un usuario a una solicitud
+    // 3. Guardar o actualizar la respuesta de un usuario a una solicitud
     @PostMapping("/user-response")
     public ResponseEntity<SignatureRequestUser> saveSignatureRequestUser(@RequestBody SignatureRequestUser user) {
+        // Si era la última respuesta, el servicio encola la firma grupal
         SignatureRequestUser saved = signatureRequestService.saveSignatureRequestUser(user);
-        // Obtener la solicitud actualizada
-        SignatureRequest request = signatureRequestService.getSignatureRequest(saved.getSignatureRequest().getId()).orElse(null);
-        if (request != null) {
-            boolean allResponded = request.getUsers().stream()
-                .allMatch(u -> u.getStatus() != null && !u.getStatus().equalsIgnoreCase("PENDIENTE"));
-            if (allResponded) {
-                try {
-                    signatureRequestService.processSignatures(request.getId());
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }
         return ResponseEntity.ok(saved);
     }
 
-    // 5. Obtener los usuarios involucrados en una solicitud
+    // 4. Obtener los usuarios involucrados en una solicitud
     @GetMapping("/{id}/users")
-    public ResponseEntity<List<SignatureRequestUser>> getUsersByRequest(@PathVariable Long id) {
-        Optional<SignatureRequest> request = signatureRequestService.getSignatureRequest(id);
-        return request.map(r -> ResponseEntity.ok(signatureRequestService.getUsersByRequest(r)))
+    public ResponseEntity<List<SignatureRequestDTO.Signer>> getUsersByRequest(@PathVariable Long id) {
+        return signatureRequestService.getUsersByRequest(id)
+                .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // 6. Eliminar una solicitud de firma
+    // 5. Eliminar una solicitud de firma
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteSignatureRequest(@PathVariable Long id) {
         signatureRequestService.deleteSignatureRequest(id);
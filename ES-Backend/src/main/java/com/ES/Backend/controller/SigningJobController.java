@@ -0,0 +1,39 @@
+package com.ES.Backend.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ES.Backend.entity.SigningJob;
+import com.ES.Backend.service.JwtService;
+import com.ES.Backend.service.SigningJobService;
+
+@RestController
+@RequestMapping("/api/signing-jobs")
+public class SigningJobController {
+    private final SigningJobService signingJobService;
+    private final JwtService jwtService;
+
+    public SigningJobController(SigningJobService signingJobService, JwtService jwtService) {
+        this.signingJobService = signingJobService;
+        this.jwtService = jwtService;
+    }
+
+    // Estado de un trabajo de firma (alternativa al aviso por WebSocket)
+    @GetMapping("/{id}")
+    public ResponseEntity<SigningJob> getJob(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+            @PathVariable Long id) {
+        String userEmail = jwtService.extractUser(authHeader.substring(7));
+        return signingJobService.getJob(id)
+            .map(job -> signingJobService.canView(job, userEmail)
+                ? ResponseEntity.ok(job)
+                : ResponseEntity.status(HttpStatus.FORBIDDEN).<SigningJob>build())
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -2,18 +2,23 @@ package com.ES.Backend.controller;
 
 import com.ES.Backend.data.UserDTO;
 import com.ES.Backend.entity.User;
+import com.ES.Backend.service.JwtService;
 import com.ES.Backend.service.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     private final UserService userService;
+    private final JwtService jwtService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, JwtService jwtService) {
         this.userService = userService;
+        this.jwtService = jwtService;
     }
 
     // Obtener todos los usuarios (sin contraseñas)
@@ -30,5 +35,19 @@ public class UserController {
         User user = userService.findByEmail(email);
         return UserDTO.fromUser(user);
     }
-    
+
+    // Preferencias de correo del usuario autenticado
+    @GetMapping("/me/email-preferences")
+    public Map<String, Boolean> getEmailPreferences(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        User user = userService.findByEmail(jwtService.extractUser(authHeader.substring(7)));
+        return Map.of("digest", user.isDigestEmails());
+    }
+
+    @PutMapping("/me/email-preferences")
+    public Map<String, Boolean> updateEmailPreferences(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+                                                       @RequestBody Map<String, Boolean> preferences) {
+        String email = jwtService.extractUser(authHeader.substring(7));
+        User user = userService.setDigestEmails(email, Boolean.TRUE.equals(preferences.get("digest")));
+        return Map.of("digest", user.isDigestEmails());
+    }
 }
@@ -1,56 +1,89 @@
 package com.ES.Backend.controller;
 
 import com.ES.Backend.service.JwtService;
-import com.ES.Backend.service.UserService;
-import com.ES.Backend.entity.User;
+import com.ES.Backend.service.NotificationLogService;
 import com.ES.Backend.entity.SignatureRequest;
 import com.ES.Backend.entity.SignatureRequestUser;
+import com.ES.Backend.entity.SigningJob;
+import com.ES.Backend.websocket.HandshakeAuthInterceptor;
+import com.ES.Backend.websocket.OutboundMessageDispatcher;
+import com.ES.Backend.websocket.SessionRegistry;
+import com.ES.Backend.websocket.UserIdentityCache;
+import com.ES.Backend.websocket.WsMessage;
+import com.ES.Backend.websocket.cluster.ClusterNotificationBus;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 @Component
-public class WebSocketController extends TextWebSocketHandler {
-
-    private static final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private static final Map<String, String> userTokens = new ConcurrentHashMap<>();
-    private static final Map<String, String> sessionToUser = new ConcurrentHashMap<>(); // sessionId -> userEmail
-    private static final Map<String, String> sessionToUserRole = new ConcurrentHashMap<>(); // sessionId -> userRole
-    private static final Map<String, Set<String>> userToSessions = new ConcurrentHashMap<>(); // userEmail -> Set<sessionId>
-    private static final Map<String, Long> userEmailToId = new ConcurrentHashMap<>(); // userEmail -> userId
-    
+public class WebSocketController extends TextWebSocketHandler implements SubProtocolCapable {
+
     @Autowired
     private JwtService jwtService;
     
+    // Identidad de usuario con TTL corto: una tormenta de reconexiones no consulta Postgres por conexión
+    @Autowired
+    private UserIdentityCache identities;
+
+    // Un registro por sesión (conexión, usuario, última actividad), indexado por usuario y por rol.
+    // Todos los envíos pasan por la cola de la sesión: quien notifica no espera a clientes lentos
+    @Autowired
+    private SessionRegistry registry;
+
+    // Las notificaciones llegan también a las sesiones abiertas en otras réplicas
+    @Autowired
+    private ClusterNotificationBus cluster;
+
+    // Historial en Mongo para reenviar lo perdido cuando el cliente se reconecta con su cursor
     @Autowired
-    private UserService userService;
+    private NotificationLogService notificationLog;
     
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * Los clientes que piden el subprotocolo de lotes reciben varios avisos en un único frame (array JSON);
+     * los que no piden ninguno siguen recibiendo un mensaje {type: ...} por frame.
+     */
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(OutboundMessageDispatcher.BATCH_PROTOCOL);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         System.out.println("✅ Nueva conexión WebSocket establecida: " + session.getId());
-        System.out.println("   - URI: " + session.getUri());
-        System.out.println("   - Headers: " + session.getHandshakeHeaders());
-        sessions.put(session.getId(), session);
+        if (registry.register(session) == null) {
+            System.err.println("⚠️ Límite de sesiones WebSocket alcanzado; se rechaza " + session.getId());
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+            return;
+        }
+        
+        // Autenticada en el handshake: recibe notificaciones desde ya, sin esperar al mensaje AUTH
+        UserIdentityCache.Identity identity = handshakeIdentity(session);
+        if (identity != null) {
+            registry.subscribe(session.getId(), identity.userEmail(), identity.role(), identity.userId());
+        }
         
         // Enviar mensaje de bienvenida
-        session.sendMessage(new TextMessage("{\"type\":\"CONNECTION\",\"message\":\"Conexión establecida\",\"sessionId\":\"" + session.getId() + "\"}"));
+        registry.sendToSession(session.getId(), new WsMessage.Connection("Conexión establecida", session.getId()));
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
         String sessionId = session.getId();
-        System.out.println("📨 Mensaje recibido de " + sessionId + ": " + payload);
+        registry.touch(sessionId);
+        // Sin el contenido: el mensaje AUTH lleva el JWT
+        System.out.println("📨 Mensaje recibido de " + sessionId + " (" + payload.length() + " caracteres)");
         
         try {
             // Intentar parsear como JSON
@@ -59,195 +92,176 @@ public class WebSocketController extends TextWebSocketHandler {
                 
                 // Manejar mensaje de autenticación (requerido)
                 if (json.has("type") && "AUTH".equals(json.get("type").asText())) {
-                    String token = json.get("token").asText();
-                    String userEmail = jwtService.extractUser(token);
-                    
-                    // Obtener información completa del usuario incluyendo el rol
-                    User user = userService.findByEmail(userEmail);
-                    String userRole = user.getRole();
-                    Long userId = user.getId();
-                    
-                    // Registrar la sesión del usuario
-                    sessionToUser.put(sessionId, userEmail);
-                    sessionToUserRole.put(sessionId, userRole);
-                    userTokens.put(sessionId, token);
-                    userEmailToId.put(userEmail, userId);
-                    
-                    // Agregar sesión al mapeo de usuario
-                    userToSessions.computeIfAbsent(userEmail, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
+                    // Si el token ya se validó en el handshake no se vuelve a parsear ni a consultar el usuario
+                    UserIdentityCache.Identity identity = handshakeIdentity(session);
+                    if (identity == null) {
+                        String token = json.get("token").asText();
+                        identity = identities.get(jwtService.extractUser(token));
+                        if (identity == null) {
+                            registry.sendToSession(sessionId, new WsMessage.Error("Usuario no encontrado"));
+                            return;
+                        }
+                        // Registrar la sesión del usuario
+                        registry.subscribe(sessionId, identity.userEmail(), identity.role(), identity.userId());
+                    }
+                    String userEmail = identity.userEmail();
+                    String userRole = identity.role();
+                    Long userId = identity.userId();
                     
                     System.out.println("🔐 Usuario autenticado: " + userEmail + " (Rol: " + userRole + ", ID: " + userId + ") en sesión: " + sessionId);
-                    System.out.println("📊 Sesiones activas para " + userEmail + ": " + userToSessions.get(userEmail).size());
+                    System.out.println("📊 Sesiones activas para " + userEmail + ": " + registry.sessionCount(userEmail));
+                    
+                    // Cursor del cliente: última secuencia recibida de su flujo y del de su rol
+                    Long lastSeq = json.hasNonNull("lastSeq") ? json.get("lastSeq").asLong() : null;
+                    Long lastRoleSeq = json.hasNonNull("lastRoleSeq") ? json.get("lastRoleSeq").asLong() : null;
+                    String roleStream = userRole != null ? NotificationLogService.roleStream(userRole) : null;
+                    long seq = notificationLog.head(userEmail);
+                    Long roleSeq = roleStream != null ? notificationLog.head(roleStream) : null;
+                    boolean resync = !notificationLog.isEnabled() || !validCursor(lastSeq, seq)
+                        || (roleStream != null && !validCursor(lastRoleSeq, roleSeq));
                     
                     // Confirmar autenticación
-                    session.sendMessage(new TextMessage("{\"type\":\"AUTH_SUCCESS\",\"message\":\"Autenticación exitosa\",\"userEmail\":\"" + userEmail + "\",\"userRole\":\"" + userRole + "\",\"userId\":" + userId + "}"));
+                    registry.sendToSession(sessionId, new WsMessage.AuthSuccess("Autenticación exitosa", userEmail, userRole, userId,
+                        seq, roleSeq, resync));
+                    
+                    // Reenviar en un solo mensaje lo que se perdió mientras estaba desconectado
+                    if (!resync) {
+                        replay(sessionId, userEmail, NotificationLogService.STREAM_USER, lastSeq);
+                        if (roleStream != null) {
+                            replay(sessionId, roleStream, NotificationLogService.STREAM_ROLE, lastRoleSeq);
+                        }
+                    }
                     return;
                 }
                 
                 // Verificar si el usuario está autenticado para otros mensajes
-                String userEmail = sessionToUser.get(sessionId);
-                if (userEmail == null) {
-                    session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"message\":\"Usuario no autenticado\"}"));
+                if (registry.subscription(sessionId) == null) {
+                    registry.sendToSession(sessionId, new WsMessage.Error("Usuario no autenticado"));
                     return;
                 }
                 
                 // Manejar otros tipos de mensajes aquí si es necesario
-                session.sendMessage(new TextMessage("{\"type\":\"MESSAGE_RECEIVED\",\"message\":\"Mensaje procesado correctamente\"}"));
+                registry.sendToSession(sessionId, new WsMessage.MessageReceived("Mensaje procesado correctamente"));
                 
             } else {
                 // Mensaje de texto plano
-                session.sendMessage(new TextMessage("{\"type\":\"ECHO\",\"message\":\"" + payload + "\"}"));
+                registry.sendToSession(sessionId, new WsMessage.Echo(payload));
             }
             
         } catch (Exception e) {
             System.err.println("❌ Error procesando mensaje: " + e.getMessage());
-            session.sendMessage(new TextMessage("{\"type\":\"ERROR\",\"message\":\"Error procesando mensaje: " + e.getMessage() + "\"}"));
+            registry.sendToSession(sessionId, new WsMessage.Error("Error procesando mensaje: " + e.getMessage()));
+        }
+    }
+
+    private static UserIdentityCache.Identity handshakeIdentity(WebSocketSession session) {
+        return (UserIdentityCache.Identity) session.getAttributes().get(HandshakeAuthInterceptor.IDENTITY_ATTRIBUTE);
+    }
+
+    private static boolean validCursor(Long cursor, long head) {
+        return cursor != null && cursor >= 0 && cursor <= head;
+    }
+
+    private void replay(String sessionId, String stream, String streamType, long afterSeq) {
+        WsMessage.Replay replay = notificationLog.replay(stream, streamType, afterSeq);
+        if (replay != null) {
+            registry.sendToSession(sessionId, replay);
         }
     }
 
     @Override
-    public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status) throws Exception {
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        registry.touch(session.getId());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String sessionId = session.getId();
-        String userEmail = sessionToUser.get(sessionId);
-        
-        System.out.println("❌ Conexión WebSocket cerrada: " + sessionId + " - Usuario: " + userEmail);
+        SessionRegistry.Subscription subscription = registry.remove(sessionId);
         
-        // Limpiar datos de la sesión
-        sessions.remove(sessionId);
-        userTokens.remove(sessionId);
-        sessionToUser.remove(sessionId);
-        sessionToUserRole.remove(sessionId);
-        
-        // Remover sesión del mapeo de usuario
-        if (userEmail != null) {
-            Set<String> userSessions = userToSessions.get(userEmail);
-            if (userSessions != null) {
-                userSessions.remove(sessionId);
-                if (userSessions.isEmpty()) {
-                    userToSessions.remove(userEmail);
-                    userEmailToId.remove(userEmail);
-                }
-            }
-        }
+        System.out.println("❌ Conexión WebSocket cerrada: " + sessionId + " - Usuario: " + (subscription != null ? subscription.userEmail() : null));
     }
 
     /**
      * Envía notificación a un usuario específico
      */
     public void sendNotificationToUser(String userEmail, String title, String message) {
-        Set<String> userSessions = userToSessions.get(userEmail);
-        if (userSessions != null && !userSessions.isEmpty()) {
-            for (String sessionId : userSessions) {
-                WebSocketSession session = sessions.get(sessionId);
-                if (session != null && session.isOpen()) {
-                    try {
-                        String notification = String.format(
-                            "{\"type\":\"NOTIFICATION\",\"target\":\"USER\",\"title\":\"%s\",\"message\":\"%s\",\"timestamp\":\"%s\"}",
-                            title, message, java.time.Instant.now()
-                        );
-                        session.sendMessage(new TextMessage(notification));
-                    } catch (Exception e) {
-                        System.err.println("❌ Error enviando notificación a " + userEmail + " en sesión " + sessionId + ": " + e.getMessage());
-                    }
-                }
-            }
-        }
+        publishToUser(userEmail, WsMessage.Notification.toUser(title, message), null);
     }
 
     /**
      * Envía notificación solo a usuarios con rol ADMIN
      */
     public void sendNotificationToAdmin(String title, String message) {
-        for (Map.Entry<String, WebSocketSession> entry : sessions.entrySet()) {
-            String sessionId = entry.getKey();
-            WebSocketSession session = entry.getValue();
-            
-            // Verificar si el usuario de esta sesión tiene rol ADMIN
-            String userRole = sessionToUserRole.get(sessionId);
-            if ("ADMIN".equals(userRole) && session.isOpen()) {
-                try {
-                    String notification = String.format(
-                        "{\"type\":\"NOTIFICATION\",\"target\":\"ADMIN\",\"title\":\"%s\",\"message\":\"%s\",\"timestamp\":\"%s\"}",
-                        title, message, java.time.Instant.now()
-                    );
-                    session.sendMessage(new TextMessage(notification));
-                } catch (Exception e) {
-                    System.err.println("❌ Error enviando notificación de admin a sesión " + sessionId + ": " + e.getMessage());
-                }
-            }
-        }
+        String role = "ADMIN";
+        notificationLog.publish(NotificationLogService.roleStream(role), NotificationLogService.STREAM_ROLE,
+            WsMessage.Notification.toAdmin(title, message), null, payload -> cluster.publishToRole(role, payload));
     }
 
     /**
      * Envía solicitud de firma a un usuario específico
      */
     public void sendSignatureRequestToUser(String userEmail, SignatureRequest request, SignatureRequestUser userRequest) {
-        Set<String> userSessions = userToSessions.get(userEmail);
-        if (userSessions != null && !userSessions.isEmpty()) {
-            for (String sessionId : userSessions) {
-                WebSocketSession session = sessions.get(sessionId);
-                if (session != null && session.isOpen()) {
-                    try {
-                        String signatureRequest = String.format(
-                            "{\"type\":\"SIGNATURE_REQUEST\",\"requestId\":%d,\"documentPath\":\"%s\",\"documentName\":\"%s\",\"page\":%d,\"posX\":%d,\"posY\":%d,\"timestamp\":\"%s\"}",
-                            request.getId(),
-                            request.getDocumentPath(),
-                            request.getDocumentPath().substring(request.getDocumentPath().lastIndexOf("/") + 1),
-                            userRequest.getPage(),
-                            userRequest.getPosX(),
-                            userRequest.getPosY(),
-                            java.time.Instant.now()
-                        );
-                        session.sendMessage(new TextMessage(signatureRequest));
-                    } catch (Exception e) {
-                        System.err.println("❌ Error enviando solicitud de firma a " + userEmail + " en sesión " + sessionId + ": " + e.getMessage());
-                    }
-                }
-            }
-        }
+        String documentPath = request.getDocumentPath();
+        publishToUser(userEmail, new WsMessage.SignatureRequest(
+            request.getId(),
+            documentPath,
+            documentPath.substring(documentPath.lastIndexOf("/") + 1),
+            userRequest.getPage(),
+            userRequest.getPosX(),
+            userRequest.getPosY(),
+            WsMessage.now()
+        ), null);
     }
 
     /**
      * Envía actualización de estado de solicitud de firma
      */
     public void sendSignatureRequestUpdate(String userEmail, Long requestId, String status, String message) {
-        Set<String> userSessions = userToSessions.get(userEmail);
-        if (userSessions != null && !userSessions.isEmpty()) {
-            for (String sessionId : userSessions) {
-                WebSocketSession session = sessions.get(sessionId);
-                if (session != null && session.isOpen()) {
-                    try {
-                        String update = String.format(
-                            "{\"type\":\"SIGNATURE_REQUEST_UPDATE\",\"requestId\":%d,\"status\":\"%s\",\"message\":\"%s\",\"timestamp\":\"%s\"}",
-                            requestId, status, message, java.time.Instant.now()
-                        );
-                        session.sendMessage(new TextMessage(update));
-                    } catch (Exception e) {
-                        System.err.println("❌ Error enviando actualización de solicitud a " + userEmail + " en sesión " + sessionId + ": " + e.getMessage());
-                    }
-                }
-            }
-        }
+        publishToUser(userEmail,
+            new WsMessage.SignatureRequestUpdate(requestId, status, message, WsMessage.now()),
+            "signature-request:" + requestId);
+    }
+
+    /**
+     * Envía el progreso de un trabajo de firma
+     */
+    public void sendSigningJobUpdate(String userEmail, SigningJob job, String message) {
+        // Solo importa el último estado del trabajo: con COALESCE se sustituye el pendiente
+        publishToUser(userEmail, new WsMessage.SigningJobUpdate(
+            job.getId(),
+            job.getType(),
+            job.getStatus(),
+            job.getDocumentId(),
+            job.getSignatureRequestId(),
+            message,
+            WsMessage.now()
+        ), "signing-job:" + job.getId());
+    }
+
+    private void publishToUser(String userEmail, WsMessage message, String coalesceKey) {
+        notificationLog.publish(userEmail, NotificationLogService.STREAM_USER, message, coalesceKey,
+            payload -> cluster.publishToUser(userEmail, payload, coalesceKey));
     }
 
     /**
      * Obtiene el número de sesiones activas
      */
     public int getActiveSessionsCount() {
-        return sessions.size();
+        return registry.sessionCount();
     }
 
     /**
      * Obtiene el número de usuarios únicos conectados
      */
     public int getUniqueUsersCount() {
-        return userToSessions.size();
+        return registry.userCount();
     }
 
     /**
      * Obtiene el ID de usuario por email
      */
     public Long getUserIdByEmail(String userEmail) {
-        return userEmailToId.get(userEmail);
+        return registry.userId(userEmail);
     }
-} 
\ No newline at end of file
+}
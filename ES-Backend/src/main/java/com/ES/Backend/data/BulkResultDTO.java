@@ -0,0 +1,24 @@
+package com.ES.Backend.data;
+
+import java.util.List;
+
+/**
+ * Resultado de una aprobación o rechazo masivo: un elemento por id recibido, en el mismo orden.
+ */
+public record BulkResultDTO(int succeeded, int failed, List<Item> items) {
+
+    public record Item(Long id, String status, String error) {
+        public static Item ok(Long id, String status) {
+            return new Item(id, status, null);
+        }
+
+        public static Item error(Long id, String error) {
+            return new Item(id, "ERROR", error);
+        }
+    }
+
+    public static BulkResultDTO of(List<Item> items) {
+        int failed = (int) items.stream().filter(i -> i.error() != null).count();
+        return new BulkResultDTO(items.size() - failed, failed, items);
+    }
+}
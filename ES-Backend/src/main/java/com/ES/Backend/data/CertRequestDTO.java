@@ -1,10 +1,13 @@
 package com.ES.Backend.data;
 
+import com.ES.Backend.signer.KeyProfile;
+
 public class CertRequestDTO {
     private String nombre;
     private String correo;
     private String organizacion;
     private String password; // para el .p12
+    private KeyProfile keyProfile; // RSA_2048 si no se indica
 
     public String getNombre() {
         return nombre;
@@ -30,4 +33,10 @@ public class CertRequestDTO {
     public void setPassword(String password) {
         this.password = password;
     }
+    public KeyProfile getKeyProfile() {
+        return keyProfile;
+    }
+    public void setKeyProfile(KeyProfile keyProfile) {
+        this.keyProfile = keyProfile;
+    }
 }
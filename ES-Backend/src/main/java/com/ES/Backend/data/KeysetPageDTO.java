@@ -0,0 +1,10 @@
+package com.ES.Backend.data;
+
+import java.util.List;
+
+/**
+ * Página de una lista ordenada por id descendente. {@code nextCursor} se pasa como {@code before}
+ * para pedir la siguiente; es null si no hay más.
+ */
+public record KeysetPageDTO<T>(List<T> items, Long nextCursor) {
+}
@@ -0,0 +1,11 @@
+package com.ES.Backend.data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Una solicitud de firma vista por uno de sus firmantes: los datos de la solicitud y solo su propia fila.
+ */
+public record SignatureInboxItemDTO(Long requestId, String documentPath, String requestStatus, LocalDateTime createdAt,
+                                    Long signerId, Long userId, int page, int posX, int posY,
+                                    String status, LocalDateTime respondedAt) {
+}
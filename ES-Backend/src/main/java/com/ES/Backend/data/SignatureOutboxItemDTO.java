@@ -0,0 +1,10 @@
+package com.ES.Backend.data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Una solicitud de firma vista por quien la creó, con el recuento de respuestas en lugar de los firmantes.
+ */
+public record SignatureOutboxItemDTO(Long requestId, String documentPath, String status, LocalDateTime createdAt,
+                                     Integer pendingResponders, Integer permittedResponders) {
+}
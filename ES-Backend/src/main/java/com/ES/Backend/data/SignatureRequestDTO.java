@@ -0,0 +1,37 @@
+package com.ES.Backend.data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solicitud de firma para las lecturas de la API, con los mismos campos JSON que la entidad.
+ * Se construye desde una sola consulta y nunca incluye la contraseña del certificado de los firmantes.
+ */
+public record SignatureRequestDTO(Long id, String documentPath, String status, LocalDateTime createdAt,
+                                  Long requestedBy, Integer pendingResponders, Integer permittedResponders,
+                                  List<Signer> users) {
+
+    public record Signer(Long id, Long userId, int page, int posX, int posY, String status,
+                         String certificateId, LocalDateTime respondedAt) {
+    }
+
+    /**
+     * Agrupa las filas por solicitud conservando el orden en que llegan.
+     */
+    public static List<SignatureRequestDTO> fromRows(List<SignatureRequestRowDTO> rows) {
+        Map<Long, SignatureRequestDTO> requests = new LinkedHashMap<>();
+        for (SignatureRequestRowDTO row : rows) {
+            SignatureRequestDTO request = requests.computeIfAbsent(row.requestId(), id -> new SignatureRequestDTO(
+                id, row.documentPath(), row.status(), row.createdAt(), row.requestedBy(),
+                row.pendingResponders(), row.permittedResponders(), new ArrayList<>()));
+            if (row.signerId() != null) {
+                request.users().add(new Signer(row.signerId(), row.userId(), row.page(), row.posX(), row.posY(),
+                    row.signerStatus(), row.certificateId(), row.respondedAt()));
+            }
+        }
+        return new ArrayList<>(requests.values());
+    }
+}
@@ -0,0 +1,13 @@
+package com.ES.Backend.data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la consulta solicitud LEFT JOIN firmantes; {@link SignatureRequestDTO#fromRows} las agrupa.
+ * Los campos del firmante son null si la solicitud no tiene ninguno.
+ */
+public record SignatureRequestRowDTO(Long requestId, String documentPath, String status, LocalDateTime createdAt,
+                                     Long requestedBy, Integer pendingResponders, Integer permittedResponders,
+                                     Long signerId, Long userId, Integer page, Integer posX, Integer posY,
+                                     String signerStatus, String certificateId, LocalDateTime respondedAt) {
+}
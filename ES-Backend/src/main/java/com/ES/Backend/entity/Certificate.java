@@ -2,12 +2,14 @@ package com.ES.Backend.entity;
 
 import java.time.Instant;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "certificates")
 public class Certificate {
     @Id
     private String id;
+    @Indexed
     private String user;
     private String filename;
     private byte[] data;        // certificado cifrado
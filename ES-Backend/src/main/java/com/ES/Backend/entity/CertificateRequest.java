@@ -2,6 +2,8 @@ package com.ES.Backend.entity;
 
 import java.util.Date;
 
+import com.ES.Backend.signer.KeyProfile;
+
 import jakarta.persistence.*;
 
 @Entity
@@ -23,8 +25,13 @@ public class CertificateRequest {
     @Column(name = "password", nullable = false)
     private String password;
     
+    // Nulo en solicitudes anteriores a los perfiles: se tratan como RSA_2048
+    @Enumerated(EnumType.STRING)
+    @Column(name = "key_profile")
+    private KeyProfile keyProfile = KeyProfile.RSA_2048;
+    
     @Column(name = "status", nullable = false)
-    private String status = "PENDING"; // PENDING, APPROVED, REJECTED
+    private String status = "PENDING"; // PENDING, PROCESSING, APPROVED, REJECTED
     
     @Column(name = "requested_at", nullable = false)
     private Date requestedAt;
@@ -38,6 +45,10 @@ public class CertificateRequest {
     @Column(name = "rejection_reason")
     private String rejectionReason;
 
+    // Cuándo se reclamó para aprobar o rechazar; si sigue en PROCESSING pasado el lease, vuelve a PENDING
+    @Column(name = "claimed_at")
+    private Date claimedAt;
+
     // Constructors
     public CertificateRequest() {}
 
@@ -90,6 +101,14 @@ public class CertificateRequest {
         this.password = password;
     }
 
+    public KeyProfile getKeyProfile() {
+        return KeyProfile.orDefault(keyProfile);
+    }
+
+    public void setKeyProfile(KeyProfile keyProfile) {
+        this.keyProfile = keyProfile;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -129,4 +148,12 @@ public class CertificateRequest {
     public void setRejectionReason(String rejectionReason) {
         this.rejectionReason = rejectionReason;
     }
+
+    public Date getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(Date claimedAt) {
+        this.claimedAt = claimedAt;
+    }
 } 
\ No newline at end of file
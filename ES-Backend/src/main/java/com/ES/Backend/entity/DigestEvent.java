@@ -0,0 +1,103 @@
+package com.ES.Backend.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Evento pendiente de resumir para un destinatario con el modo resumen activo.
+ * EmailDigestService los agrupa por destinatario y los convierte en un único correo por ventana.
+ */
+@Entity
+@Table(name = "email_digest_event", indexes = {
+    @Index(name = "idx_email_digest_recipient_created", columnList = "recipient, created_at")
+})
+public class DigestEvent {
+
+    public enum Kind {
+        SIGNATURE_REQUEST_NEW("nueva solicitud de firma", "nuevas solicitudes de firma"),
+        SIGNATURE_REQUEST_COMPLETED("firma completada", "firmas completadas"),
+        CERTIFICATE_REQUEST_NEW("nueva solicitud de certificado", "nuevas solicitudes de certificado"),
+        CERTIFICATE_APPROVED("certificado aprobado", "certificados aprobados"),
+        CERTIFICATE_REJECTED("solicitud de certificado rechazada", "solicitudes de certificado rechazadas");
+
+        private final String singular;
+        private final String plural;
+
+        Kind(String singular, String plural) {
+            this.singular = singular;
+            this.plural = plural;
+        }
+
+        public String label(int count) {
+            return count + " " + (count == 1 ? singular : plural);
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private Kind kind;
+
+    @Column(name = "detail", length = 500)
+    private String detail;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public DigestEvent() {
+    }
+
+    public DigestEvent(String recipient, Kind kind, String detail) {
+        this.recipient = recipient;
+        this.kind = kind;
+        this.detail = detail != null && detail.length() > 500 ? detail.substring(0, 500) : detail;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public void setDetail(String detail) {
+        this.detail = detail;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,11 +1,13 @@
 package com.ES.Backend.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "document_metadata")
+@CompoundIndex(name = "user_signed", def = "{ 'user': 1, 'isSigned': 1 }")
 public class DocumentMetadata {
 
     @Id
@@ -0,0 +1,83 @@
+package com.ES.Backend.entity;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Mensaje WebSocket ya enviado (o que se intentó enviar) a un usuario o a un rol. Se guarda tal cual
+ * salió, con su número de secuencia, para reenviarlo a quien se reconecte con un cursor anterior.
+ */
+@Document(collection = "notification_log")
+public class NotificationLogEntry {
+
+    @Id
+    private String id;
+    // Email del usuario o "role:<ROL>"
+    private String stream;
+    private long seq;
+    private String payload;
+    // Clave de sustitución: al reenviar solo se manda el último mensaje de cada clave
+    private String coalesceKey;
+    private Instant createdAt;
+
+    public NotificationLogEntry() {
+    }
+
+    public NotificationLogEntry(String stream, long seq, String payload, String coalesceKey) {
+        this.stream = stream;
+        this.seq = seq;
+        this.payload = payload;
+        this.coalesceKey = coalesceKey;
+        this.createdAt = Instant.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public void setStream(String stream) {
+        this.stream = stream;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    public void setCoalesceKey(String coalesceKey) {
+        this.coalesceKey = coalesceKey;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ES.Backend.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Último número de secuencia asignado en cada flujo de notification_log (uno por usuario y uno por rol).
+ */
+@Document(collection = "notification_seq")
+public class NotificationSequence {
+
+    @Id
+    private String id;
+    private long seq;
+
+    public NotificationSequence() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+}
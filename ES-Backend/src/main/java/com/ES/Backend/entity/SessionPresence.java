@@ -0,0 +1,78 @@
+package com.ES.Backend.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Usuario con al menos una sesión WebSocket abierta en un nodo. Una fila por (nodo, usuario),
+ * no por sesión: solo cambia cuando el usuario abre su primera sesión en el nodo o cierra la última.
+ */
+@Entity
+@Table(name = "ws_session_presence",
+    uniqueConstraints = @UniqueConstraint(name = "uk_ws_presence_node_user", columnNames = {"node_id", "user_email"}),
+    indexes = {
+        @Index(name = "idx_ws_presence_user", columnList = "user_email"),
+        @Index(name = "idx_ws_presence_role", columnList = "role")
+    })
+public class SessionPresence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "role")
+    private String role;
+
+    @Column(name = "since", nullable = false)
+    private LocalDateTime since;
+
+    public SessionPresence() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public void setUserEmail(String userEmail) {
+        this.userEmail = userEmail;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public LocalDateTime getSince() {
+        return since;
+    }
+
+    public void setSince(LocalDateTime since) {
+        this.since = since;
+    }
+}
@@ -8,14 +8,21 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+// Bandeja de salida: solicitudes creadas por el usuario, de la más reciente a la más antigua
+@Table(indexes = @Index(name = "idx_signature_request_requested_by", columnList = "requested_by, id"))
 public class SignatureRequest {
     
+    // Secuencia con reserva de 50 ids: Hibernate no consulta la base por fila y puede agrupar los INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "signature_request_seq")
+    @SequenceGenerator(name = "signature_request_seq", sequenceName = "signature_request_seq", allocationSize = 50)
     private Long id;
 
     private String documentPath;
@@ -24,6 +31,15 @@ public class SignatureRequest {
 
     private LocalDateTime createdAt;
 
+    // Id del usuario que creó la solicitud (null en las anteriores a este campo)
+    private Long requestedBy;
+
+    // Firmantes que aún no han respondido y cuántos han permitido. Se actualizan con UPDATE atómicos
+    // (SignatureRequestRepository); null en solicitudes anteriores, se inicializan en la primera respuesta
+    private Integer pendingResponders;
+
+    private Integer permittedResponders;
+
     @OneToMany(mappedBy = "signatureRequest", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<SignatureRequestUser> users;
 
@@ -77,6 +93,30 @@ public class SignatureRequest {
         this.createdAt = createdAt;
     }
 
+    public Long getRequestedBy() {
+        return requestedBy;
+    }
+
+    public void setRequestedBy(Long requestedBy) {
+        this.requestedBy = requestedBy;
+    }
+
+    public Integer getPendingResponders() {
+        return pendingResponders;
+    }
+
+    public void setPendingResponders(Integer pendingResponders) {
+        this.pendingResponders = pendingResponders;
+    }
+
+    public Integer getPermittedResponders() {
+        return permittedResponders;
+    }
+
+    public void setPermittedResponders(Integer permittedResponders) {
+        this.permittedResponders = permittedResponders;
+    }
+
     public List<SignatureRequestUser> getUsers() {
         return users;
     }
@@ -5,15 +5,21 @@ import jakarta.persistence.Transient;
 import java.time.LocalDateTime;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+// Bandeja de entrada: solicitudes de un firmante por estado, paginadas por id de solicitud
+@Table(indexes = @Index(name = "idx_signature_request_user_user_status", columnList = "user_id, status, signature_request_id"))
 public class SignatureRequestUser {
 
     @Transient
@@ -27,8 +33,10 @@ public class SignatureRequestUser {
         this.signatureRequestId = signatureRequestId;
     }
     
+    // Ids por secuencia, como en SignatureRequest: los firmantes de una solicitud se insertan en lotes
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "signature_request_user_seq")
+    @SequenceGenerator(name = "signature_request_user_seq", sequenceName = "signature_request_user_seq", allocationSize = 50)
     private Long id;
 
     private Long userId;
@@ -40,6 +48,8 @@ public class SignatureRequestUser {
     private String status = "PENDIENTE";
 
     private String certificateId;
+    // Llega en la respuesta del firmante, pero nunca se devuelve en JSON
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String certificatePassword;
 
     @ManyToOne
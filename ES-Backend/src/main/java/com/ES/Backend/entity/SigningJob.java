@@ -0,0 +1,297 @@
+package com.ES.Backend.entity;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.*;
+
+/**
+ * Trabajo de firma persistente. Los nodos lo reclaman con FOR UPDATE SKIP LOCKED y
+ * mantienen un lease (lockedUntil) mientras firman; si el nodo cae, otro lo retoma al vencer.
+ */
+@Entity
+@Table(name = "signing_job", indexes = {
+    @Index(name = "idx_signing_job_status_locked", columnList = "status, locked_until")
+})
+public class SigningJob {
+    public static final String TYPE_DOCUMENT = "DOCUMENTO";
+    public static final String TYPE_GROUP = "GRUPAL";
+
+    public static final String STATUS_PENDING = "PENDIENTE";
+    public static final String STATUS_RUNNING = "EN_PROCESO";
+    public static final String STATUS_COMPLETED = "COMPLETADO";
+    public static final String STATUS_FAILED = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "type", nullable = false)
+    private String type; // DOCUMENTO, GRUPAL
+
+    @Column(name = "status", nullable = false)
+    private String status = STATUS_PENDING; // PENDIENTE, EN_PROCESO, COMPLETADO, FALLIDO
+
+    @Column(name = "requested_by", nullable = false)
+    private String requestedBy;
+
+    // Firma individual: documento (Mongo) y certificado del usuario
+    @Column(name = "document_id")
+    private String documentId;
+
+    @Column(name = "certificate_id")
+    private String certificateId;
+
+    // Contraseña del certificado cifrada con la clave del servidor (SigningJobSecrets); se borra al terminar el trabajo
+    @JsonIgnore
+    @Column(name = "sealed_password", length = 512)
+    private String sealedPassword;
+
+    // Contraseña en claro solo en la memoria del nodo que ejecuta el trabajo; nunca se persiste
+    @JsonIgnore
+    @Transient
+    private char[] password;
+
+    private int page;
+    private float posX;
+    private float posY;
+
+    // Firmas que tenía el PDF antes del primer intento: si al reintentar hay más, la firma ya se aplicó
+    @Column(name = "signatures_before")
+    private Integer signaturesBefore;
+
+    // Firma grupal
+    @Column(name = "signature_request_id")
+    private Long signatureRequestId;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public SigningJob() {
+    }
+
+    public static SigningJob forDocument(String requestedBy, String documentId, String certificateId,
+                                         String sealedPassword, int page, float posX, float posY) {
+        SigningJob job = new SigningJob();
+        job.type = TYPE_DOCUMENT;
+        job.requestedBy = requestedBy;
+        job.documentId = documentId;
+        job.certificateId = certificateId;
+        job.sealedPassword = sealedPassword;
+        job.page = page;
+        job.posX = posX;
+        job.posY = posY;
+        return job;
+    }
+
+    public static SigningJob forSignatureRequest(String requestedBy, Long signatureRequestId) {
+        SigningJob job = new SigningJob();
+        job.type = TYPE_GROUP;
+        job.requestedBy = requestedBy;
+        job.signatureRequestId = signatureRequestId;
+        return job;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+        if (status == null) status = STATUS_PENDING;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public boolean isFinished() {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getRequestedBy() {
+        return requestedBy;
+    }
+
+    public void setRequestedBy(String requestedBy) {
+        this.requestedBy = requestedBy;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getCertificateId() {
+        return certificateId;
+    }
+
+    public void setCertificateId(String certificateId) {
+        this.certificateId = certificateId;
+    }
+
+    public String getSealedPassword() {
+        return sealedPassword;
+    }
+
+    public void setSealedPassword(String sealedPassword) {
+        this.sealedPassword = sealedPassword;
+    }
+
+    public char[] getPassword() {
+        return password;
+    }
+
+    public void setPassword(char[] password) {
+        this.password = password;
+    }
+
+    // Sobrescribe la copia en memoria de la contraseña al terminar con el trabajo
+    public void wipePassword() {
+        if (password != null) {
+            Arrays.fill(password, '\0');
+            password = null;
+        }
+    }
+
+    public Integer getSignaturesBefore() {
+        return signaturesBefore;
+    }
+
+    public void setSignaturesBefore(Integer signaturesBefore) {
+        this.signaturesBefore = signaturesBefore;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public float getPosX() {
+        return posX;
+    }
+
+    public void setPosX(float posX) {
+        this.posX = posX;
+    }
+
+    public float getPosY() {
+        return posY;
+    }
+
+    public void setPosY(float posY) {
+        this.posY = posY;
+    }
+
+    public Long getSignatureRequestId() {
+        return signatureRequestId;
+    }
+
+    public void setSignatureRequestId(Long signatureRequestId) {
+        this.signatureRequestId = signatureRequestId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
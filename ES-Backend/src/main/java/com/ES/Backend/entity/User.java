@@ -38,6 +38,10 @@ public class User {
     @Column(name = "password_reset_code")
     private String passwordResetCode;
 
+    // Recibir un resumen periódico en lugar de un correo por evento (null en usuarios anteriores = no)
+    @Column(name = "digest_emails")
+    private Boolean digestEmails;
+
     // Constructors
     public User() {}
 
@@ -130,5 +134,12 @@ public class User {
     public void setPasswordResetCode(String passwordResetCode) {
         this.passwordResetCode = passwordResetCode;
     }
-    
-} 
\ No newline at end of file
+
+    public boolean isDigestEmails() {
+        return Boolean.TRUE.equals(digestEmails);
+    }
+
+    public void setDigestEmails(boolean digestEmails) {
+        this.digestEmails = digestEmails;
+    }
+}
@@ -10,5 +10,6 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CertificateRepository extends MongoRepository<Certificate, String>{
     List<Certificate> findByuser(String user);
+    boolean existsByuser(String user);
     void deleteByuser(String user);
 }
\ No newline at end of file
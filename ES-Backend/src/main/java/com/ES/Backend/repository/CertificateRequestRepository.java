@@ -1,9 +1,15 @@
 package com.ES.Backend.repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ES.Backend.entity.CertificateRequest;
 
@@ -13,4 +19,37 @@ public interface CertificateRequestRepository extends JpaRepository<CertificateR
     List<CertificateRequest> findByStatus(String status);
     List<CertificateRequest> findByStatusOrderByRequestedAtDesc(String status);
     List<CertificateRequest> findAllByOrderByRequestedAtDesc();
+
+    /**
+     * Reclama las solicitudes que siguen en PENDING pasándolas a PROCESSING y devuelve los ids reclamados.
+     * Si dos administradores aprueban o rechazan la misma a la vez, el UPDATE condicional solo se la da a uno.
+     * claimed_at marca el inicio del lease que vigila {@link #releaseExpiredClaims}.
+     */
+    @Transactional
+    @Query(value = """
+        UPDATE certificate_requests SET status = 'PROCESSING', claimed_at = :now
+        WHERE id IN (:ids) AND status = 'PENDING'
+        RETURNING id
+        """, nativeQuery = true)
+    List<Long> claimPending(@Param("ids") Collection<Long> ids, @Param("now") Date now);
+
+    /**
+     * Devuelve a PENDING las solicitudes reclamadas cuya emisión falló.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CertificateRequest r SET r.status = 'PENDING', r.claimedAt = null WHERE r.id IN :ids AND r.status = 'PROCESSING'")
+    int releaseClaims(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Devuelve a PENDING las reclamadas antes de {@code cutoff} que siguen en PROCESSING (el proceso que las
+     * reclamó cayó a mitad de la emisión), y las que quedaron en PROCESSING sin fecha de reclamo.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE CertificateRequest r SET r.status = 'PENDING', r.claimedAt = null
+        WHERE r.status = 'PROCESSING' AND (r.claimedAt IS NULL OR r.claimedAt < :cutoff)
+        """)
+    int releaseExpiredClaims(@Param("cutoff") Date cutoff);
 } 
\ No newline at end of file
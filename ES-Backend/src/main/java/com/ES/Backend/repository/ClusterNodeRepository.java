@@ -0,0 +1,35 @@
+package com.ES.Backend.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ES.Backend.entity.ClusterNode;
+
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    /**
+     * Renueva el heartbeat del nodo. Devuelve true si la fila se ha insertado en lugar de actualizarse
+     * (xmax = 0), es decir, si no existía: alta nueva o un nodo la borró con {@link #deleteStale}.
+     */
+    @Transactional
+    @Query(value = """
+        INSERT INTO ws_cluster_node (node_id, heartbeat_at) VALUES (:nodeId, :now)
+        ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at
+        RETURNING (xmax = 0)
+        """, nativeQuery = true)
+    boolean heartbeat(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+
+    /** Borra los nodos caídos y su presencia. */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        WITH stale AS (DELETE FROM ws_cluster_node WHERE heartbeat_at < :cutoff RETURNING node_id)
+        DELETE FROM ws_session_presence WHERE node_id IN (SELECT node_id FROM stale)
+        """, nativeQuery = true)
+    int deleteStale(@Param("cutoff") LocalDateTime cutoff);
+}
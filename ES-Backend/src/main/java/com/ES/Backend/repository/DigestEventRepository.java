@@ -0,0 +1,29 @@
+package com.ES.Backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ES.Backend.entity.DigestEvent;
+
+public interface DigestEventRepository extends JpaRepository<DigestEvent, Long> {
+
+    /**
+     * Bloquea los eventos de los destinatarios cuya ventana ya venció (el evento más antiguo es anterior
+     * a {@code cutoff}), ordenados por destinatario. SKIP LOCKED reparte el trabajo entre nodos.
+     */
+    @Query(value = """
+        SELECT * FROM email_digest_event
+        WHERE recipient IN (
+            SELECT recipient FROM email_digest_event
+            GROUP BY recipient
+            HAVING MIN(created_at) <= :cutoff)
+        ORDER BY recipient, id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<DigestEvent> lockDue(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -1,6 +1,7 @@
 package com.ES.Backend.repository;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.ES.Backend.entity.DocumentMetadata;
@@ -10,6 +11,10 @@ import java.util.List;
 @Repository
 public interface DocumentMetadataRepository extends MongoRepository<DocumentMetadata, String> {
     List<DocumentMetadata> findByuser(String user);
+    boolean existsByuser(String user);
+
+    @Query(value = "{ 'user': ?0, 'isSigned': false }", count = true)
+    long countPendingByuser(String user);
     void deleteByuser(String user);
 }
 
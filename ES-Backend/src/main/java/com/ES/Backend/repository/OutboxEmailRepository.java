@@ -0,0 +1,30 @@
+package com.ES.Backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ES.Backend.entity.OutboxEmail;
+
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    /**
+     * Bloquea los siguientes correos listos para enviar: pendientes cuyo reintento ya venció
+     * o en envío con el lease vencido (nodo caído). Igual que signing_job, con SKIP LOCKED.
+     */
+    @Query(value = """
+        SELECT * FROM email_outbox
+        WHERE (status = 'PENDIENTE' AND next_attempt_at <= :now)
+           OR (status = 'EN_PROCESO' AND locked_until < :now)
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<OutboxEmail> lockNextAvailable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    long countByStatusIn(Collection<String> statuses);
+}
@@ -0,0 +1,46 @@
+package com.ES.Backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ES.Backend.entity.SessionPresence;
+
+public interface SessionPresenceRepository extends JpaRepository<SessionPresence, Long> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO ws_session_presence (node_id, user_email, role, since) VALUES (:nodeId, :userEmail, :role, :now)
+        ON CONFLICT (node_id, user_email) DO UPDATE SET role = EXCLUDED.role
+        """, nativeQuery = true)
+    int upsert(@Param("nodeId") String nodeId, @Param("userEmail") String userEmail,
+               @Param("role") String role, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SessionPresence p WHERE p.nodeId = :nodeId AND p.userEmail = :userEmail")
+    int deleteByNodeAndUser(@Param("nodeId") String nodeId, @Param("userEmail") String userEmail);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SessionPresence p WHERE p.nodeId = :nodeId")
+    int deleteByNode(@Param("nodeId") String nodeId);
+
+    @Query("""
+        SELECT DISTINCT p.nodeId FROM SessionPresence p, ClusterNode n
+        WHERE n.nodeId = p.nodeId AND p.userEmail = :userEmail AND n.heartbeatAt >= :cutoff
+        """)
+    List<String> findLiveNodesByUser(@Param("userEmail") String userEmail, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("""
+        SELECT DISTINCT p.nodeId FROM SessionPresence p, ClusterNode n
+        WHERE n.nodeId = p.nodeId AND p.role = :role AND n.heartbeatAt >= :cutoff
+        """)
+    List<String> findLiveNodesByRole(@Param("role") String role, @Param("cutoff") LocalDateTime cutoff);
+}
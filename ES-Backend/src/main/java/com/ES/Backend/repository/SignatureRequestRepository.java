@@ -1,8 +1,98 @@
 package com.ES.Backend.repository;
 
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ES.Backend.data.SignatureOutboxItemDTO;
+import com.ES.Backend.data.SignatureRequestRowDTO;
 import com.ES.Backend.entity.SignatureRequest;
 
 public interface SignatureRequestRepository extends JpaRepository<SignatureRequest, Long> {
-    // Métodos personalizados si se requieren
+
+    /**
+     * Solicitud con sus firmantes cargados en la misma consulta, para quien necesita las entidades
+     * (firma grupal, destinatarios de avisos). Las lecturas de la API usan {@link #findDetailRows}.
+     */
+    @EntityGraph(attributePaths = "users")
+    Optional<SignatureRequest> findWithUsersById(Long id);
+
+    /**
+     * Solicitud y firmantes en una consulta, proyectados a DTO: no se hidratan entidades ni la contraseña del certificado.
+     */
+    @Query("""
+        SELECT new com.ES.Backend.data.SignatureRequestRowDTO(r.id, r.documentPath, r.status, r.createdAt, r.requestedBy,
+            r.pendingResponders, r.permittedResponders,
+            u.id, u.userId, u.page, u.posX, u.posY, u.status, u.certificateId, u.respondedAt)
+        FROM SignatureRequest r LEFT JOIN r.users u
+        WHERE r.id = :id
+        ORDER BY u.id
+        """)
+    List<SignatureRequestRowDTO> findDetailRows(@Param("id") Long id);
+
+    interface ResponderCounts {
+        Integer getPendingResponders();
+
+        Integer getPermittedResponders();
+    }
+
+    /**
+     * Calcula los contadores de una solicitud creada antes de que existieran. No hace nada si ya están.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE signature_request SET
+            pending_responders = (SELECT count(*) FROM signature_request_user u
+                                  WHERE u.signature_request_id = :id AND (u.status IS NULL OR u.status = 'PENDIENTE')),
+            permitted_responders = (SELECT count(*) FROM signature_request_user u
+                                    WHERE u.signature_request_id = :id AND u.status = 'PERMITIDO')
+        WHERE id = :id AND pending_responders IS NULL
+        """, nativeQuery = true)
+    int initResponderCounts(@Param("id") Long id);
+
+    /**
+     * Descuenta una respuesta. La fila queda bloqueada hasta el commit, así que lo que lea
+     * {@link #findResponderCounts} en la misma transacción es el resultado de este descuento.
+     */
+    @Modifying
+    @Query("""
+        UPDATE SignatureRequest r
+        SET r.pendingResponders = r.pendingResponders - 1, r.permittedResponders = r.permittedResponders + :permitted
+        WHERE r.id = :id AND r.pendingResponders > 0
+        """)
+    int recordResponse(@Param("id") Long id, @Param("permitted") int permitted);
+
+    @Query("""
+        SELECT r.pendingResponders AS pendingResponders, r.permittedResponders AS permittedResponders
+        FROM SignatureRequest r WHERE r.id = :id
+        """)
+    Optional<ResponderCounts> findResponderCounts(@Param("id") Long id);
+
+    /**
+     * Bandeja de salida: solicitudes creadas por el usuario (índice requested_by, id), por cursor como la de entrada.
+     */
+    @Query("""
+        SELECT new com.ES.Backend.data.SignatureOutboxItemDTO(r.id, r.documentPath, r.status, r.createdAt,
+            r.pendingResponders, r.permittedResponders)
+        FROM SignatureRequest r
+        WHERE r.requestedBy = :userId AND r.id < :before
+        ORDER BY r.id DESC
+        """)
+    List<SignatureOutboxItemDTO> findOutbox(@Param("userId") Long userId, @Param("before") Long before, Limit limit);
+
+    @Query("""
+        SELECT new com.ES.Backend.data.SignatureOutboxItemDTO(r.id, r.documentPath, r.status, r.createdAt,
+            r.pendingResponders, r.permittedResponders)
+        FROM SignatureRequest r
+        WHERE r.requestedBy = :userId AND r.status = :status AND r.id < :before
+        ORDER BY r.id DESC
+        """)
+    List<SignatureOutboxItemDTO> findOutbox(@Param("userId") Long userId, @Param("status") String status,
+                                            @Param("before") Long before, Limit limit);
 }
@@ -1,8 +1,54 @@
 package com.ES.Backend.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ES.Backend.data.SignatureInboxItemDTO;
 import com.ES.Backend.entity.SignatureRequestUser;
 
 public interface SignatureRequestUserRepository extends JpaRepository<SignatureRequestUser, Long> {
-    
+
+    @Query("SELECT u.status FROM SignatureRequestUser u WHERE u.id = :id")
+    Optional<String> findStatusById(@Param("id") Long id);
+
+    /**
+     * Registra la respuesta solo si el firmante seguía pendiente. Devuelve 1 la primera vez y 0 si ya
+     * había respondido, de modo que cada firmante descuenta una sola vez aunque repita la petición.
+     */
+    @Modifying
+    @Query("""
+        UPDATE SignatureRequestUser u SET u.status = :status, u.respondedAt = :respondedAt
+        WHERE u.id = :id AND (u.status IS NULL OR u.status = 'PENDIENTE')
+        """)
+    int markResponded(@Param("id") Long id, @Param("status") String status, @Param("respondedAt") LocalDateTime respondedAt);
+
+    /**
+     * Bandeja de entrada de un firmante (índice user_id, status, signature_request_id). Paginación por
+     * cursor: solicitudes con id menor que {@code before}, sin OFFSET.
+     */
+    @Query("""
+        SELECT new com.ES.Backend.data.SignatureInboxItemDTO(r.id, r.documentPath, r.status, r.createdAt,
+            u.id, u.userId, u.page, u.posX, u.posY, u.status, u.respondedAt)
+        FROM SignatureRequestUser u JOIN u.signatureRequest r
+        WHERE u.userId = :userId AND u.status = :status AND u.signatureRequest.id < :before
+        ORDER BY u.signatureRequest.id DESC
+        """)
+    List<SignatureInboxItemDTO> findInbox(@Param("userId") Long userId, @Param("status") String status,
+                                          @Param("before") Long before, Limit limit);
+
+    @Query("""
+        SELECT new com.ES.Backend.data.SignatureInboxItemDTO(r.id, r.documentPath, r.status, r.createdAt,
+            u.id, u.userId, u.page, u.posX, u.posY, u.status, u.respondedAt)
+        FROM SignatureRequestUser u JOIN u.signatureRequest r
+        WHERE u.userId = :userId AND u.signatureRequest.id < :before
+        ORDER BY u.signatureRequest.id DESC
+        """)
+    List<SignatureInboxItemDTO> findInbox(@Param("userId") Long userId, @Param("before") Long before, Limit limit);
 }
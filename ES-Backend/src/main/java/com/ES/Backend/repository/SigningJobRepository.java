@@ -0,0 +1,52 @@
+package com.ES.Backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ES.Backend.entity.SigningJob;
+
+public interface SigningJobRepository extends JpaRepository<SigningJob, Long> {
+
+    /**
+     * Bloquea los siguientes trabajos disponibles: pendientes o en proceso con el lease vencido
+     * (nodo caído). SKIP LOCKED hace que cada nodo se lleve filas distintas sin esperar a los demás.
+     */
+    @Query(value = """
+        SELECT * FROM signing_job
+        WHERE status = 'PENDIENTE'
+           OR (status = 'EN_PROCESO' AND locked_until < :now)
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<SigningJob> lockNextAvailable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Heartbeat: alarga el lease de los trabajos que este nodo sigue ejecutando. Devuelve cuántos
+     * conserva; si un lease ya había vencido y otro nodo retomó el trabajo, esa fila no se toca.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE SigningJob j SET j.lockedUntil = :until
+        WHERE j.id IN :ids AND j.lockedBy = :nodeId AND j.status = 'EN_PROCESO'
+        """)
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("nodeId") String nodeId, @Param("until") LocalDateTime until);
+
+    /**
+     * Guarda cuántas firmas tenía el PDF antes del primer intento, solo si aún no se había anotado.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SigningJob j SET j.signaturesBefore = :count WHERE j.id = :id AND j.signaturesBefore IS NULL")
+    int recordSignaturesBefore(@Param("id") Long id, @Param("count") int count);
+
+    boolean existsBySignatureRequestIdAndStatusIn(Long signatureRequestId, Collection<String> statuses);
+}
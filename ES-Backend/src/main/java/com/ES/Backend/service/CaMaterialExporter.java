@@ -0,0 +1,81 @@
+package com.ES.Backend.service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica la cadena de la CA en PEM (ca-cert.pem) para herramientas externas.
+ * Se escribe una vez al arrancar, de forma atómica y solo si el contenido cambió;
+ * la clave privada de la CA nunca se exporta.
+ */
+@Component
+public class CaMaterialExporter {
+    private final CertificateAuthority certificateAuthority;
+    private final Path exportPath;
+
+    public CaMaterialExporter(CertificateAuthority certificateAuthority,
+                              @Value("${ca.export.path:files/uploads/tmp/ca-cert.pem}") String exportPath) {
+        this.certificateAuthority = certificateAuthority;
+        this.exportPath = Paths.get(exportPath).toAbsolutePath();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void exportOnStartup() {
+        try {
+            if (export()) {
+                System.out.println("Cadena de la CA exportada a " + exportPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Error exportando la cadena de la CA: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe la cadena si el archivo no existe o su contenido es distinto. Devuelve true si escribió.
+     */
+    public synchronized boolean export() throws IOException {
+        byte[] pem = toPem(certificateAuthority.getChain());
+        // Versiones anteriores dejaban aquí la clave privada de la CA
+        Files.deleteIfExists(exportPath.resolveSibling("ca-key.pem"));
+        if (Files.exists(exportPath) && Arrays.equals(Files.readAllBytes(exportPath), pem)) {
+            return false;
+        }
+        Files.createDirectories(exportPath.getParent());
+        Path tmp = Files.createTempFile(exportPath.getParent(), "ca-cert", ".tmp");
+        try {
+            Files.write(tmp, pem);
+            try {
+                Files.move(tmp, exportPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, exportPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return true;
+    }
+
+    public static byte[] toPem(X509Certificate[] chain) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JcaPEMWriter writer = new JcaPEMWriter(out)) {
+            for (X509Certificate cert : chain) {
+                writer.writeObject(cert);
+            }
+        }
+        return out.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,233 @@
+package com.ES.Backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openssl.PEMKeyPair;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * CA emisora de los certificados de usuario, cargada una vez desde un keystore compartido
+ * (PKCS#12 o PEM con clave y cadena). Todos los nodos firman con la misma CA.
+ * El keystore se crea con {@code java -jar app.jar init-ca} o, si se permite, en el primer arranque.
+ */
+@Component
+public class CertificateAuthority {
+    public static final String DEFAULT_KEYSTORE_PATH = "files/ca/ca.p12";
+    public static final String DEFAULT_ALIAS = "ca";
+    private static final String CA_DN = "emailAddress=electronic.signature@gmail.com, CN=ESI, OU=E-S, O=E-Signature, L=Esmeraldas, ST=Esmeraldas, C=EC";
+
+    private final PrivateKey privateKey;
+    private final X509Certificate[] chain;
+    private final X500Name subject;
+    private final String signatureAlgorithm;
+    // ContentSigner no es thread-safe: uno reutilizable por hilo en lugar de uno por certificado
+    private final ThreadLocal<ContentSigner> signers;
+
+    public CertificateAuthority(@Value("${ca.keystore.path:" + DEFAULT_KEYSTORE_PATH + "}") String keystorePath,
+                                @Value("${ca.keystore.password:}") String keystorePassword,
+                                @Value("${ca.keystore.alias:" + DEFAULT_ALIAS + "}") String alias,
+                                @Value("${ca.keystore.generate-if-missing:false}") boolean generateIfMissing) throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        Path path = Paths.get(keystorePath).toAbsolutePath();
+        char[] password = keystorePassword.toCharArray();
+
+        if (!Files.exists(path)) {
+            if (!generateIfMissing) {
+                throw new IllegalStateException("No existe el keystore de la CA en " + path
+                    + ". Créalo con 'java -jar app.jar init-ca' o activa ca.keystore.generate-if-missing");
+            }
+            createKeystore(path, password, alias);
+        }
+
+        KeyStore.PrivateKeyEntry entry = load(path, password, alias);
+        this.privateKey = entry.getPrivateKey();
+        java.security.cert.Certificate[] certs = entry.getCertificateChain();
+        this.chain = new X509Certificate[certs.length];
+        for (int i = 0; i < certs.length; i++) {
+            chain[i] = (X509Certificate) certs[i];
+        }
+        this.subject = new JcaX509CertificateHolder(chain[0]).getSubject();
+        this.signatureAlgorithm = "EC".equals(privateKey.getAlgorithm()) ? "SHA256withECDSA" : "SHA256WithRSA";
+        this.signers = ThreadLocal.withInitial(this::newSigner);
+        System.out.println("CA cargada desde " + path + " (" + subject + ", SHA-256 " + fingerprint(chain[0]) + ")");
+    }
+
+    public X509Certificate getCertificate() {
+        return chain[0];
+    }
+
+    public X509Certificate[] getChain() {
+        return chain.clone();
+    }
+
+    public X500Name getSubject() {
+        return subject;
+    }
+
+    /**
+     * Firma el certificado con la clave de la CA reutilizando el ContentSigner del hilo.
+     */
+    public X509Certificate issue(X509v3CertificateBuilder builder) throws Exception {
+        X509CertificateHolder holder = builder.build(signers.get());
+        return new JcaX509CertificateConverter().setProvider("BC").getCertificate(holder);
+    }
+
+    private ContentSigner newSigner() {
+        try {
+            return new JcaContentSignerBuilder(signatureAlgorithm).setProvider("BC").build(privateKey);
+        } catch (OperatorCreationException e) {
+            throw new IllegalStateException("No se pudo crear el firmante de la CA", e);
+        }
+    }
+
+    private static KeyStore.PrivateKeyEntry load(Path path, char[] password, String alias) throws Exception {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".pem")) {
+            return loadPem(path);
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(path)) {
+            keyStore.load(in, password);
+        }
+        if (!keyStore.isKeyEntry(alias)) {
+            throw new IllegalStateException("El keystore de la CA no tiene la clave '" + alias + "'");
+        }
+        return (KeyStore.PrivateKeyEntry) keyStore.getEntry(alias, new KeyStore.PasswordProtection(password));
+    }
+
+    // PEM con la clave privada (sin cifrar) y los certificados, el primero el de la CA
+    private static KeyStore.PrivateKeyEntry loadPem(Path path) throws IOException {
+        PrivateKey key = null;
+        List<X509Certificate> certs = new ArrayList<>();
+        JcaPEMKeyConverter keyConverter = new JcaPEMKeyConverter().setProvider("BC");
+        JcaX509CertificateConverter certConverter = new JcaX509CertificateConverter().setProvider("BC");
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII);
+             PEMParser parser = new PEMParser(reader)) {
+            Object obj;
+            while ((obj = parser.readObject()) != null) {
+                if (obj instanceof PEMKeyPair pair) {
+                    key = keyConverter.getPrivateKey(pair.getPrivateKeyInfo());
+                } else if (obj instanceof PrivateKeyInfo info) {
+                    key = keyConverter.getPrivateKey(info);
+                } else if (obj instanceof X509CertificateHolder holder) {
+                    try {
+                        certs.add(certConverter.getCertificate(holder));
+                    } catch (Exception e) {
+                        throw new IOException("Certificado inválido en " + path, e);
+                    }
+                }
+            }
+        }
+        if (key == null || certs.isEmpty()) {
+            throw new IllegalStateException("El PEM de la CA debe contener la clave privada y su certificado");
+        }
+        return new KeyStore.PrivateKeyEntry(key, certs.toArray(new X509Certificate[0]));
+    }
+
+    /**
+     * Genera la CA (RSA 4096, 10 años) y la guarda como PKCS#12. Si otro nodo la creó a la vez,
+     * se conserva la suya. Devuelve false si el keystore ya existía.
+     */
+    public static boolean createKeystore(Path path, char[] password, String alias) throws Exception {
+        if (password.length == 0) {
+            throw new IllegalStateException("Falta la contraseña del keystore de la CA (CA_KEYSTORE_PASSWORD)");
+        }
+        if (Files.exists(path)) {
+            return false;
+        }
+        Security.addProvider(new BouncyCastleProvider());
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(4096);
+        KeyPair caKeyPair = keyGen.generateKeyPair();
+
+        X500Name caSubject = new X500Name(CA_DN);
+        Date notBefore = new Date();
+        Date notAfter = new Date(notBefore.getTime() + (3650L * 24 * 60 * 60 * 1000L)); // 10 años
+        JcaX509v3CertificateBuilder caCertBuilder = new JcaX509v3CertificateBuilder(
+            caSubject, BigInteger.valueOf(System.currentTimeMillis()), notBefore, notAfter, caSubject, caKeyPair.getPublic()
+        );
+        caCertBuilder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        caCertBuilder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+        ContentSigner caSigner = new JcaContentSignerBuilder("SHA256WithRSA").setProvider("BC").build(caKeyPair.getPrivate());
+        X509Certificate caCertificate = new JcaX509CertificateConverter().setProvider("BC")
+            .getCertificate(caCertBuilder.build(caSigner));
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(alias, caKeyPair.getPrivate(), password, new X509Certificate[]{caCertificate});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        keyStore.store(out, password);
+
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, out.toByteArray());
+            Files.move(tmp, path);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        System.out.println("CA creada en " + path + " (SHA-256 " + fingerprint(caCertificate) + ")");
+        return true;
+    }
+
+    /**
+     * Comando {@code init-ca [ruta]}: crea el keystore una sola vez, antes de levantar los nodos.
+     * La contraseña se lee de CA_KEYSTORE_PASSWORD y la ruta por defecto de CA_KEYSTORE_PATH.
+     */
+    public static void initFromCommandLine(String[] args) throws Exception {
+        String envPath = System.getenv("CA_KEYSTORE_PATH");
+        String keystorePath = args.length > 1 ? args[1] : (envPath != null ? envPath : DEFAULT_KEYSTORE_PATH);
+        String password = System.getenv("CA_KEYSTORE_PASSWORD");
+        Path path = Paths.get(keystorePath).toAbsolutePath();
+        if (!createKeystore(path, password == null ? new char[0] : password.toCharArray(), DEFAULT_ALIAS)) {
+            System.out.println("El keystore de la CA ya existe en " + path + "; no se modifica");
+        }
+    }
+
+    private static String fingerprint(X509Certificate cert) {
+        try {
+            return HexFormat.of().withUpperCase().formatHex(MessageDigest.getInstance("SHA-256").digest(cert.getEncoded()));
+        } catch (Exception e) {
+            return "?";
+        }
+    }
+}
@@ -1,12 +1,32 @@
 package com.ES.Backend.service;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.ES.Backend.data.BulkResultDTO;
 import com.ES.Backend.entity.CertificateRequest;
 import com.ES.Backend.repository.CertificateRequestRepository;
+import com.ES.Backend.signer.KeyProfile;
+
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class CertificateRequestService {
@@ -14,19 +34,62 @@ public class CertificateRequestService {
     private final CertificateService certificateService;
     private final EmailService emailService;
     private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    // Emisión de las aprobaciones masivas: acotado para no saturar CPU ni la conexión a Mongo
+    private final ExecutorService bulkExecutor;
+    private final int bulkMaxItems;
+    private final long claimLeaseSeconds;
 
     public CertificateRequestService(CertificateRequestRepository repository, 
                                    CertificateService certificateService,
                                    EmailService emailService,
-                                   NotificationService notificationService) {
+                                   NotificationService notificationService,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${certificates.bulk.threads:0}") int bulkThreads,
+                                   @Value("${certificates.bulk.max-items:500}") int bulkMaxItems,
+                                   @Value("${certificates.claim.lease-seconds:900}") long claimLeaseSeconds) {
         this.repository = repository;
         this.certificateService = certificateService;
         this.emailService = emailService;
         this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.bulkMaxItems = bulkMaxItems;
+        this.claimLeaseSeconds = claimLeaseSeconds;
+        int size = bulkThreads > 0 ? bulkThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.bulkExecutor = Executors.newFixedThreadPool(size, r -> {
+            Thread t = new Thread(r, "cert-bulk-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkExecutor.shutdownNow();
+    }
+
+    /**
+     * Devuelve a PENDING las solicitudes que llevan en PROCESSING más que el lease, p. ej. porque el nodo
+     * que las aprobaba cayó antes de guardar el resultado.
+     */
+    @Scheduled(fixedDelayString = "${certificates.claim.sweep-interval-ms:60000}")
+    public void releaseExpiredClaims() {
+        try {
+            int released = repository.releaseExpiredClaims(new Date(System.currentTimeMillis() - claimLeaseSeconds * 1000));
+            if (released > 0) {
+                System.out.println("🧹 " + released + " solicitudes de certificado en PROCESSING vuelven a PENDING");
+            }
+        } catch (Exception e) {
+            System.err.println("Error liberando solicitudes de certificado reclamadas: " + e.getMessage());
+        }
     }
 
-    public CertificateRequest createRequest(String userEmail, String userName, String organization, String password) {
+    @Transactional
+    public CertificateRequest createRequest(String userEmail, String userName, String organization, String password,
+                                            KeyProfile keyProfile) {
         CertificateRequest request = new CertificateRequest(userEmail, userName, organization, password);
+        request.setKeyProfile(KeyProfile.orDefault(keyProfile));
         CertificateRequest savedRequest = repository.save(request);
         
         // Enviar notificaciones
@@ -52,29 +115,31 @@ public class CertificateRequestService {
         return repository.findById(id);
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public CertificateRequest approveRequest(Long requestId, String adminEmail) throws Exception {
         CertificateRequest request = repository.findById(requestId)
             .orElseThrow(() -> new RuntimeException("Solicitud no encontrada"));
 
-        if (!"PENDING".equals(request.getStatus())) {
+        // El UPDATE condicional bloquea la fila hasta el commit: una aprobación masiva simultánea no la reclama
+        if (repository.claimPending(List.of(requestId), new Date()).isEmpty()) {
             throw new RuntimeException("La solicitud ya ha sido procesada");
         }
 
         // Generar el certificado
-        certificateService.generateAndSaveCertificate(
-            request.getUserName(),
-            request.getUserEmail(),
-            request.getOrganization(),
-            request.getPassword(),
-            request.getUserEmail()
-        );
+        String certificateId = issueCertificate(request);
 
-        // Actualizar el estado de la solicitud
+        // Actualizar el estado de la solicitud; si no se puede guardar, el certificado emitido sobra
         request.setStatus("APPROVED");
         request.setProcessedAt(new java.util.Date());
         request.setProcessedBy(adminEmail);
         
-        CertificateRequest updatedRequest = repository.save(request);
+        CertificateRequest updatedRequest;
+        try {
+            updatedRequest = repository.saveAndFlush(request);
+        } catch (RuntimeException e) {
+            discardCertificate(certificateId);
+            throw e;
+        }
 
         // Enviar notificaciones al usuario
         emailService.sendCertificateApprovedNotification(updatedRequest);
@@ -83,11 +148,12 @@ public class CertificateRequestService {
         return updatedRequest;
     }
 
+    @Transactional
     public CertificateRequest rejectRequest(Long requestId, String adminEmail, String reason) {
         CertificateRequest request = repository.findById(requestId)
             .orElseThrow(() -> new RuntimeException("Solicitud no encontrada"));
 
-        if (!"PENDING".equals(request.getStatus())) {
+        if (repository.claimPending(List.of(requestId), new Date()).isEmpty()) {
             throw new RuntimeException("La solicitud ya ha sido procesada");
         }
 
@@ -104,4 +170,152 @@ public class CertificateRequestService {
 
         return updatedRequest;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Aprueba varias solicitudes a la vez. La emisión de cada certificado se reparte en un pool acotado,
+     * los estados se guardan con un único saveAll y los administradores reciben un solo aviso con el resumen.
+     * Un fallo en una solicitud no afecta al resto: queda reflejado en su elemento del resultado.
+     * Solo se emite para las solicitudes que este proceso reclama (PENDING -> PROCESSING); las que fallan vuelven
+     * a PENDING. Si una caída deja alguna en PROCESSING, {@link #releaseExpiredClaims} la devuelve a PENDING
+     * cuando vence certificates.claim.lease-seconds.
+     */
+    public BulkResultDTO approveRequests(List<Long> ids, String adminEmail) {
+        List<Long> unique = checkBulkIds(ids);
+        Map<Long, BulkResultDTO.Item> results = new HashMap<>();
+        Map<CertificateRequest, Future<String>> issuing = new LinkedHashMap<>();
+        for (CertificateRequest request : claimPending(unique, results)) {
+            issuing.put(request, bulkExecutor.submit(() -> issueCertificate(request)));
+        }
+
+        Date now = new Date();
+        List<CertificateRequest> approved = new ArrayList<>();
+        List<String> issuedCertificates = new ArrayList<>();
+        List<Long> released = new ArrayList<>();
+        for (Map.Entry<CertificateRequest, Future<String>> entry : issuing.entrySet()) {
+            CertificateRequest request = entry.getKey();
+            try {
+                issuedCertificates.add(entry.getValue().get());
+                request.setStatus("APPROVED");
+                request.setProcessedAt(now);
+                request.setProcessedBy(adminEmail);
+                approved.add(request);
+                results.put(request.getId(), BulkResultDTO.Item.ok(request.getId(), "APPROVED"));
+            } catch (ExecutionException e) {
+                System.err.println("Error aprobando la solicitud " + request.getId() + ": " + e.getCause().getMessage());
+                results.put(request.getId(), BulkResultDTO.Item.error(request.getId(), errorMessage(e.getCause())));
+                released.add(request.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                results.put(request.getId(), BulkResultDTO.Item.error(request.getId(), "Operación interrumpida"));
+                released.add(request.getId());
+            }
+        }
+        // Estados y correos en la misma transacción: si el guardado falla no queda ningún aviso encolado
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.saveAll(approved);
+                approved.forEach(emailService::sendCertificateApprovedNotification);
+            });
+        } catch (RuntimeException e) {
+            // Sin la aprobación guardada, los certificados ya emitidos en Mongo se borran y las solicitudes se liberan
+            System.err.println("Error guardando la aprobación masiva: " + e.getMessage());
+            issuedCertificates.forEach(this::discardCertificate);
+            for (CertificateRequest request : approved) {
+                results.put(request.getId(), BulkResultDTO.Item.error(request.getId(), "No se pudo guardar la aprobación"));
+                released.add(request.getId());
+            }
+            approved.clear();
+        }
+        if (!released.isEmpty()) {
+            repository.releaseClaims(released);
+        }
+
+        approved.forEach(notificationService::notifyCertificateApproved);
+        BulkResultDTO result = BulkResultDTO.of(unique.stream().map(results::get).toList());
+        notificationService.notifyAdminBulkCertificateRequests("aprobó", adminEmail, result.succeeded(), result.failed());
+        return result;
+    }
+
+    /**
+     * Rechaza varias solicitudes con el mismo motivo, con un único saveAll y un solo aviso a los administradores.
+     */
+    public BulkResultDTO rejectRequests(List<Long> ids, String adminEmail, String reason) {
+        List<Long> unique = checkBulkIds(ids);
+        Map<Long, BulkResultDTO.Item> results = new HashMap<>();
+        // Reclamo y rechazo en una sola transacción: si algo falla, las solicitudes siguen en PENDING
+        List<CertificateRequest> rejected = transactionTemplate.execute(status -> {
+            List<CertificateRequest> claimed = claimPending(unique, results);
+            Date now = new Date();
+            for (CertificateRequest request : claimed) {
+                request.setStatus("REJECTED");
+                request.setProcessedAt(now);
+                request.setProcessedBy(adminEmail);
+                request.setRejectionReason(reason);
+                results.put(request.getId(), BulkResultDTO.Item.ok(request.getId(), "REJECTED"));
+            }
+            repository.saveAll(claimed);
+            claimed.forEach(emailService::sendCertificateRejectedNotification);
+            return claimed;
+        });
+
+        rejected.forEach(notificationService::notifyCertificateRejected);
+        BulkResultDTO result = BulkResultDTO.of(unique.stream().map(results::get).toList());
+        notificationService.notifyAdminBulkCertificateRequests("rechazó", adminEmail, result.succeeded(), result.failed());
+        return result;
+    }
+
+    private String issueCertificate(CertificateRequest request) throws Exception {
+        return certificateService.generateAndSaveCertificate(
+            request.getUserName(),
+            request.getUserEmail(),
+            request.getOrganization(),
+            request.getPassword(),
+            request.getUserEmail(),
+            request.getKeyProfile()
+        );
+    }
+
+    private List<Long> checkBulkIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("No se indicaron solicitudes");
+        }
+        List<Long> unique = ids.stream().distinct().toList();
+        if (unique.size() > bulkMaxItems) {
+            throw new IllegalArgumentException("Máximo " + bulkMaxItems + " solicitudes por operación");
+        }
+        return unique;
+    }
+
+    private void discardCertificate(String certificateId) {
+        try {
+            certificateService.deleteCertificate(certificateId);
+        } catch (Exception e) {
+            System.err.println("No se pudo borrar el certificado huérfano " + certificateId + ": " + e.getMessage());
+        }
+    }
+
+    // Reclama las solicitudes con un UPDATE condicional y las carga en una sola consulta. Las inexistentes,
+    // ya procesadas o reclamadas a la vez por otro administrador quedan como error
+    private List<CertificateRequest> claimPending(List<Long> ids, Map<Long, BulkResultDTO.Item> results) {
+        Set<Long> claimed = new HashSet<>(repository.claimPending(ids, new Date()));
+        Map<Long, CertificateRequest> byId = new HashMap<>();
+        repository.findAllById(ids).forEach(request -> byId.put(request.getId(), request));
+        List<CertificateRequest> pending = new ArrayList<>();
+        for (Long id : ids) {
+            CertificateRequest request = byId.get(id);
+            if (request == null) {
+                results.put(id, BulkResultDTO.Item.error(id, "Solicitud no encontrada"));
+            } else if (!claimed.contains(id)) {
+                results.put(id, BulkResultDTO.Item.error(id, "La solicitud ya ha sido procesada"));
+            } else {
+                pending.add(request);
+            }
+        }
+        return pending;
+    }
+
+    private static String errorMessage(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
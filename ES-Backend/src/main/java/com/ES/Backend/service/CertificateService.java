@@ -2,38 +2,39 @@ package com.ES.Backend.service;
 
 import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
-import java.nio.file.Paths;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.io.IOException;
 import java.security.SecureRandom;
 import java.security.Security;
+import java.security.UnrecoverableKeyException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
+import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.SecretKey;
 
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.BasicConstraints;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.KeyUsage;
-import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.ES.Backend.entity.Certificate;
 import com.ES.Backend.repository.CertificateRepository;
+import com.ES.Backend.signer.KeyProfile;
+import com.ES.Backend.signer.SigningKey;
 
 
 @Service
@@ -41,40 +42,20 @@ public class CertificateService {
     private final CertificateRepository repository;
     private final CryptoService cryptoService;
     private final NotificationService notificationService;
-    private PrivateKey caPrivateKey;
-    private X509Certificate caCertificate;
-    
+    private final SigningKeyCache signingKeyCache;
+    private final CertificateAuthority certificateAuthority;
+    private final KeyPairPool keyPairPool;
+    private static final SecureRandom SERIAL_RANDOM = new SecureRandom();
 
-    public CertificateService(CertificateRepository repository, CryptoService cryptoService, NotificationService notificationService) {
+    public CertificateService(CertificateRepository repository, CryptoService cryptoService, NotificationService notificationService,
+                              SigningKeyCache signingKeyCache, CertificateAuthority certificateAuthority, KeyPairPool keyPairPool) {
         Security.addProvider(new BouncyCastleProvider());
         this.repository = repository;
         this.cryptoService = cryptoService;
         this.notificationService = notificationService;
-        try {
-            // Generar CA en código
-            KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
-            keyGen.initialize(4096);
-            KeyPair caKeyPair = keyGen.generateKeyPair();
-            this.caPrivateKey = caKeyPair.getPrivate();
-            String caEmail = "electronic.signature@gmail.com";
-            String caDn = "emailAddress=" + caEmail + ", CN=ESI, OU=E-S, O=E-Signature, L=Esmeraldas, ST=Esmeraldas, C=EC";
-            X500Name caSubject = new X500Name(caDn);
-            BigInteger caSerial = BigInteger.valueOf(System.currentTimeMillis());
-            Date notBefore = new Date();
-            Date notAfter = new Date(notBefore.getTime() + (3650L * 24 * 60 * 60 * 1000L)); // 10 años
-            JcaX509v3CertificateBuilder caCertBuilder = new JcaX509v3CertificateBuilder(
-                caSubject, caSerial, notBefore, notAfter, caSubject, caKeyPair.getPublic()
-            );
-            caCertBuilder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
-            caCertBuilder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
-            ContentSigner caSigner = new JcaContentSignerBuilder("SHA256WithRSA").setProvider("BC").build(caPrivateKey);
-            X509CertificateHolder caCertHolder = caCertBuilder.build(caSigner);
-            this.caCertificate = new JcaX509CertificateConverter().setProvider("BC").getCertificate(caCertHolder);
-            System.out.println("CA generada en memoria correctamente");
-        } catch (Exception e) {
-            System.err.println("Error generando la CA en memoria: " + e.getMessage());
-            throw new RuntimeException(e);
-        }
+        this.signingKeyCache = signingKeyCache;
+        this.certificateAuthority = certificateAuthority;
+        this.keyPairPool = keyPairPool;
     }
 
     public String encrypt(String user, MultipartFile file, char[] password) throws Exception {
@@ -140,57 +121,44 @@ public class CertificateService {
         }
     }
 
-    public KeyPair generateRSAKeyPair() throws Exception {
-        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
-        keyGen.initialize(2048);
-        return keyGen.generateKeyPair();
+    /**
+     * Descifra el .p12 y lo carga como clave de firma en memoria.
+     * Si signing.key-cache.enabled está activo, reutiliza la clave ya desbloqueada.
+     * Una contraseña incorrecta se informa como {@link InvalidCertificatePasswordException}.
+     */
+    public SigningKey unlockSigningKey(String id, char[] password) throws Exception {
+        return signingKeyCache.get(id, password, () -> {
+            byte[] p12Bytes;
+            try {
+                p12Bytes = decrypt(id, password);
+            } catch (BadPaddingException | IllegalBlockSizeException e) {
+                throw new InvalidCertificatePasswordException("Contraseña del certificado incorrecta", e);
+            }
+            try {
+                return SigningKey.fromPkcs12(p12Bytes, password);
+            } catch (UnrecoverableKeyException e) {
+                throw new InvalidCertificatePasswordException("Contraseña del certificado incorrecta", e);
+            } catch (IOException e) {
+                // Con CBC, una clave errónea a veces da un relleno válido y el fallo aparece al abrir el PKCS#12
+                if (e.getCause() instanceof UnrecoverableKeyException) {
+                    throw new InvalidCertificatePasswordException("Contraseña del certificado incorrecta", e);
+                }
+                throw e;
+            } finally {
+                Arrays.fill(p12Bytes, (byte) 0);
+            }
+        });
+    }
+
+    // Par nuevo del perfil pedido: de la reserva pregenerada o, si está vacía, generado en línea
+    public KeyPair generateKeyPair(KeyProfile profile) throws Exception {
+        return keyPairPool.take(KeyProfile.orDefault(profile));
     }
     
     // Implementa generateUserCertificate usando BouncyCastle para firmar con tu CA
     public X509Certificate generateUserCertificate(String nombre, String correo, String organizacion, PublicKey userPublicKey) throws Exception {
-    Security.addProvider(new BouncyCastleProvider());
-
-    // Exportar la CA a archivos PEM en files/uploads/tmp con ruta absoluta
-    try {
-        String rootPath = Paths.get("files").toAbsolutePath().toString();
-        java.io.File tmpDir = new java.io.File(rootPath + "/uploads/tmp");
-        if (!tmpDir.exists()) {
-            tmpDir.mkdirs();
-        }
-        
-        // Guardar el certificado de la CA
-        java.io.File caCertFile = new java.io.File(tmpDir, "ca-cert.pem");
-        try (java.io.FileWriter fw = new java.io.FileWriter(caCertFile);
-             org.bouncycastle.openssl.jcajce.JcaPEMWriter pemWriter = new org.bouncycastle.openssl.jcajce.JcaPEMWriter(fw)) {
-            pemWriter.writeObject(this.caCertificate);
-            System.out.println("CA certificate saved to: " + caCertFile.getAbsolutePath());
-        }
-        
-        // Guardar la clave privada de la CA
-        java.io.File caKeyFile = new java.io.File(tmpDir, "ca-key.pem");
-        try (java.io.FileWriter fw = new java.io.FileWriter(caKeyFile);
-             org.bouncycastle.openssl.jcajce.JcaPEMWriter pemWriter = new org.bouncycastle.openssl.jcajce.JcaPEMWriter(fw)) {
-            pemWriter.writeObject(this.caPrivateKey);
-            System.out.println("CA private key saved to: " + caKeyFile.getAbsolutePath());
-        }
-
-        // Establecer permisos adecuados
-        caCertFile.setReadable(true, false);
-        caKeyFile.setReadable(true, false);
-        caCertFile.setWritable(true, false);
-        caKeyFile.setWritable(true, false);
-        
-    } catch (Exception e) {
-        System.err.println("Error exportando la CA: " + e.getMessage());
-        e.printStackTrace();
-        throw e;
-    }
-
-    // Resto del método permanece igual...
-        // Ordenar el subject y el issuer para que coincidan exactamente
-        String caEmail = "electronic.signature@gmail.com";
-        String caDn = "emailAddress=" + caEmail + ", CN=ESI, OU=E-S, O=E-Signature, L=Esmeraldas, ST=Esmeraldas, C=EC";
-        X500Name issuer = new X500Name(caDn);
+        // El issuer es exactamente el subject del certificado de la CA cargada
+        X500Name issuer = certificateAuthority.getSubject();
 
         StringBuilder subjectDn = new StringBuilder();
         subjectDn.append("emailAddress=").append(correo);
@@ -202,7 +170,8 @@ public class CertificateService {
         subjectDn.append(", C=EC");
         X500Name subject = new X500Name(subjectDn.toString());
 
-        BigInteger serial = BigInteger.valueOf(System.currentTimeMillis());
+        // Serial aleatorio: con la emisión en memoria varios certificados pueden caer en el mismo milisegundo
+        BigInteger serial = new BigInteger(159, SERIAL_RANDOM);
         Date notBefore = new Date();
         Date notAfter = new Date(notBefore.getTime() + (365L * 24 * 60 * 60 * 1000L)); // 1 año
 
@@ -212,7 +181,8 @@ public class CertificateService {
 
         // Extensiones recomendadas para certificados de usuario
         certBuilder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
-        certBuilder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyEncipherment));
+        KeyProfile profile = "EC".equals(userPublicKey.getAlgorithm()) ? KeyProfile.EC_P256 : KeyProfile.RSA_2048;
+        certBuilder.addExtension(Extension.keyUsage, true, new KeyUsage(profile.keyUsage()));
         // ExtendedKeyUsage: clientAuth
         certBuilder.addExtension(Extension.extendedKeyUsage, false, new org.bouncycastle.asn1.x509.ExtendedKeyUsage(org.bouncycastle.asn1.x509.KeyPurposeId.id_kp_clientAuth));
         // SubjectAlternativeName: correo electrónico si está presente
@@ -222,10 +192,7 @@ public class CertificateService {
             certBuilder.addExtension(Extension.subjectAlternativeName, false, subjectAltNames);
         }
         
-        ContentSigner signer = new JcaContentSignerBuilder("SHA256WithRSA").setProvider("BC").build(caPrivateKey);
-        X509CertificateHolder certHolder = certBuilder.build(signer);
-
-        X509Certificate cert = new JcaX509CertificateConverter().setProvider("BC").getCertificate(certHolder);
+        X509Certificate cert = certificateAuthority.issue(certBuilder);
 
         // Imprimir información del certificado generado para depuración
         /*System.out.println("Certificado generado: " + cert.toString());
@@ -243,7 +210,10 @@ public class CertificateService {
             KeyStore pkcs12 = KeyStore.getInstance("PKCS12");
             pkcs12.load(null, null);
 
-            java.security.cert.Certificate[] chain = new java.security.cert.Certificate[] { cert, caCertificate };
+            X509Certificate[] caChain = certificateAuthority.getChain();
+            java.security.cert.Certificate[] chain = new java.security.cert.Certificate[caChain.length + 1];
+            chain[0] = cert;
+            System.arraycopy(caChain, 0, chain, 1, caChain.length);
             pkcs12.setKeyEntry("user-key", privateKey, password.toCharArray(), chain);
 
             ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -257,7 +227,7 @@ public class CertificateService {
     }
 
     // Implementa guardarCertificadoEnDB para guardar el archivo en la base de datos como ya lo haces
-    public void guardarCertificadoEnDB(String username, byte[] p12Bytes, String password) throws Exception {
+    public String guardarCertificadoEnDB(String username, byte[] p12Bytes, String password) throws Exception {
         // Generar salt y IV
         byte[] salt = SecureRandom.getInstanceStrong().generateSeed(16);
         byte[] iv = SecureRandom.getInstanceStrong().generateSeed(16);
@@ -276,7 +246,7 @@ public class CertificateService {
         cert.setSaltHex(Base64.getEncoder().encodeToString(salt));
         cert.setIvHex(Base64.getEncoder().encodeToString(iv));
     
-        repository.save(cert);
+        return repository.save(cert).getId();
     }
 
     public List<Certificate> getCertificatesByUser(String user) {
@@ -284,6 +254,11 @@ public class CertificateService {
     }
 
     public void deleteCertificatesByUser(String user) {
+        if (signingKeyCache.isEnabled()) {
+            for (Certificate cert : repository.findByuser(user)) {
+                signingKeyCache.invalidate(cert.getId());
+            }
+        }
         repository.deleteByuser(user);
     }
 
@@ -292,12 +267,17 @@ public class CertificateService {
     }
     
     public void deleteCertificate(String id) {
+        signingKeyCache.invalidate(id);
         repository.deleteById(id);
     }
 
-    public void generateAndSaveCertificate(String nombre, String correo, String organizacion, String password, String username) throws Exception {
-        // 1. Generar par de claves
-        KeyPair keyPair = generateRSAKeyPair();
+    /**
+     * Emite y guarda el certificado; devuelve su id en Mongo para poder borrarlo si la aprobación no se guarda.
+     */
+    public String generateAndSaveCertificate(String nombre, String correo, String organizacion, String password, String username,
+                                           KeyProfile profile) throws Exception {
+        // 1. Generar par de claves (RSA o EC según el perfil solicitado)
+        KeyPair keyPair = generateKeyPair(profile);
 
         // 2. Generar certificado X.509 firmado con tu CA
         X509Certificate cert = generateUserCertificate(nombre, correo, organizacion, keyPair.getPublic());
@@ -306,10 +286,11 @@ public class CertificateService {
         byte[] p12Bytes = generarP12(cert, keyPair.getPrivate(), password);
 
         // 4. Guardar en la base de datos
-        guardarCertificadoEnDB(username, p12Bytes, password);
+        String certificateId = guardarCertificadoEnDB(username, p12Bytes, password);
         
         // 5. Verificar y enviar notificaciones de estado
         notificationService.checkAndNotifyUserStatus(username);
+        return certificateId;
     }
 
 
@@ -19,6 +19,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class DocumentMetadataService {
@@ -110,6 +111,10 @@ public class DocumentMetadataService {
         return metadata;
     }
 
+    public Optional<DocumentMetadata> findDocument(String id) {
+        return repository.findById(id);
+    }
+
     public Resource loadPdfById(String id) {
         DocumentMetadata metadata = repository.findById(id)
             .orElseThrow(() -> new ResponseStatusException(
@@ -0,0 +1,185 @@
+package com.ES.Backend.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import com.ES.Backend.entity.DigestEvent;
+import com.ES.Backend.entity.User;
+import com.ES.Backend.repository.DigestEventRepository;
+import com.ES.Backend.repository.UserRepository;
+
+/**
+ * Modo resumen de correos: los destinatarios que lo activan no reciben un correo por evento,
+ * sino uno por ventana (mail.digest.window) con el recuento, p. ej. "5 nuevas solicitudes de firma, 2 firmas completadas".
+ * La ventana empieza con el primer evento pendiente del destinatario.
+ */
+@Service
+public class EmailDigestService {
+    // Detalle que se lista por tipo de evento; el resto solo cuenta
+    private static final int MAX_DETAILS_PER_KIND = 10;
+
+    private final DigestEventRepository repository;
+    private final UserRepository userRepository;
+    private final EmailOutboxService outbox;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration window;
+    private final int batchSize;
+    // Buzones sin usuario asociado (p. ej. el de administración) que siempre van en modo resumen
+    private final Set<String> digestRecipients;
+
+    public EmailDigestService(DigestEventRepository repository,
+                              UserRepository userRepository,
+                              EmailOutboxService outbox,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${mail.digest.enabled:true}") boolean enabled,
+                              @Value("${mail.digest.window:15m}") Duration window,
+                              @Value("${mail.digest.batch-size:500}") int batchSize,
+                              @Value("${mail.digest.recipients:}") Set<String> digestRecipients) {
+        this.repository = repository;
+        this.userRepository = userRepository;
+        this.outbox = outbox;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.window = window;
+        this.batchSize = batchSize;
+        this.digestRecipients = digestRecipients.stream()
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Indica si los avisos para este destinatario deben ir al resumen en lugar de enviarse sueltos.
+     */
+    public boolean accepts(String recipient) {
+        if (!enabled || recipient == null) {
+            return false;
+        }
+        return digestRecipients.contains(recipient)
+            || userRepository.findByEmail(recipient).map(User::isDigestEmails).orElse(false);
+    }
+
+    /**
+     * Igual que {@link #accepts(String)} con el usuario ya cargado, sin volver a buscarlo por email.
+     */
+    public boolean accepts(User recipient) {
+        if (!enabled || recipient == null) {
+            return false;
+        }
+        return recipient.isDigestEmails() || digestRecipients.contains(recipient.getEmail());
+    }
+
+    @Transactional
+    public void record(String recipient, DigestEvent.Kind kind, String detail) {
+        repository.save(new DigestEvent(recipient, kind, detail));
+    }
+
+    @Scheduled(fixedDelayString = "${mail.digest.poll-interval-ms:60000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> flushBatch()))) {
+                // Siguiente lote
+            }
+        } catch (Exception e) {
+            System.err.println("[EmailDigest] Error enviando resúmenes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Convierte un lote de eventos vencidos en un correo por destinatario. Devuelve true si puede quedar más trabajo.
+     */
+    private boolean flushBatch() {
+        List<DigestEvent> events = repository.lockDue(LocalDateTime.now().minus(window), batchSize);
+        if (events.isEmpty()) {
+            return false;
+        }
+        Map<String, List<DigestEvent>> byRecipient = new LinkedHashMap<>();
+        for (DigestEvent event : events) {
+            byRecipient.computeIfAbsent(event.getRecipient(), k -> new ArrayList<>()).add(event);
+        }
+        boolean full = events.size() == batchSize;
+        if (full && byRecipient.size() > 1) {
+            // El último destinatario puede tener más eventos fuera del lote: se resume entero en la siguiente vuelta
+            String last = events.get(events.size() - 1).getRecipient();
+            byRecipient.remove(last);
+        }
+
+        List<DigestEvent> processed = new ArrayList<>();
+        byRecipient.forEach((recipient, recipientEvents) -> {
+            Map<DigestEvent.Kind, List<String>> byKind = new EnumMap<>(DigestEvent.Kind.class);
+            for (DigestEvent event : recipientEvents) {
+                byKind.computeIfAbsent(event.getKind(), k -> new ArrayList<>()).add(event.getDetail());
+            }
+            outbox.enqueue(recipient, subject(byKind), html(byKind));
+            processed.addAll(recipientEvents);
+        });
+        repository.deleteAllInBatch(processed);
+        return full;
+    }
+
+    private static String subject(Map<DigestEvent.Kind, List<String>> byKind) {
+        return "Resumen de actividad: " + byKind.entrySet().stream()
+            .map(e -> e.getKey().label(e.getValue().size()))
+            .collect(Collectors.joining(", "));
+    }
+
+    private static String html(Map<DigestEvent.Kind, List<String>> byKind) {
+        StringBuilder sections = new StringBuilder();
+        byKind.forEach((kind, details) -> {
+            sections.append("<h3 style=\"color: #2b2d42; margin: 20px 0 8px;\">")
+                .append(kind.label(details.size()))
+                .append("</h3>\n<ul style=\"font-size: 14px; color: #444444; margin: 0; padding-left: 20px;\">\n");
+            details.stream().limit(MAX_DETAILS_PER_KIND).forEach(detail -> sections
+                .append("<li>").append(HtmlUtils.htmlEscape(detail != null ? detail : "")).append("</li>\n"));
+            if (details.size() > MAX_DETAILS_PER_KIND) {
+                sections.append("<li>y ").append(details.size() - MAX_DETAILS_PER_KIND).append(" más</li>\n");
+            }
+            sections.append("</ul>\n");
+        });
+
+        return """
+            <div style="font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; background-color: #f4f6f8; padding: 40px;">
+              <div style="max-width: 600px; margin: auto; background-color: #ffffff; border-radius: 10px; padding: 30px; box-shadow: 0 4px 10px rgba(0, 0, 0, 0.05);">
+                <div style="text-align: center; margin-bottom: 20px;">
+                  <img src="https://cdn-icons-png.flaticon.com/512/942/942748.png" alt="Firma electrónica" width="80" style="margin-bottom: 10px;">
+                  <h1 style="color: #2b2d42; margin: 0;">Resumen de actividad</h1>
+                </div>
+
+                <p style="font-size: 16px; color: #444444;">
+                  Esto es lo que ha pasado en tu cuenta desde el último resumen:
+                </p>
+
+                %s
+
+                <p style="font-size: 14px; color: #888888; margin-top: 30px;">
+                  Recibes este resumen porque lo activaste en tu panel. Puedes volver a recibir un correo por evento desde allí.
+                </p>
+
+                <hr style="margin: 30px 0; border: none; border-top: 1px solid #eeeeee;">
+
+                <p style="font-size: 13px; color: #aaa; text-align: center;">
+                  © 2025 E-Signature. Todos los derechos reservados.
+                </p>
+              </div>
+            </div>
+            """.formatted(sections);
+    }
+}
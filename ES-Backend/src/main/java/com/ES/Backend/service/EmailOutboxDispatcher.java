@@ -0,0 +1,153 @@
+package com.ES.Backend.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ES.Backend.entity.OutboxEmail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Envía la bandeja de salida en segundo plano. Cada lote se manda con una sola conexión SMTP
+ * (JavaMailSender.send con varios mensajes); los que fallan se reintentan con espera exponencial.
+ */
+@Component
+public class EmailOutboxDispatcher {
+    // Máximo de lotes que se vacían en un ciclo de poll; el resto espera al siguiente
+    private static final int MAX_BATCHES_PER_POLL = 20;
+
+    private final EmailOutboxService outbox;
+    private final JavaMailSender mailSender;
+    private final int batchSize;
+    private final String nodeId;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+
+    public EmailOutboxDispatcher(EmailOutboxService outbox,
+                                 JavaMailSender mailSender,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${mail.outbox.node-id:${signing.jobs.node-id:}}") String nodeId) {
+        this.outbox = outbox;
+        this.mailSender = mailSender;
+        this.batchSize = batchSize;
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.sent = Counter.builder("mail.outbox.sent")
+            .description("Correos entregados al servidor SMTP").register(meterRegistry);
+        this.retried = Counter.builder("mail.outbox.failures").tag("result", "retry")
+            .description("Envíos fallidos que se reintentarán").register(meterRegistry);
+        this.failed = Counter.builder("mail.outbox.failures").tag("result", "dead")
+            .description("Correos descartados tras agotar los intentos").register(meterRegistry);
+        Gauge.builder("mail.outbox.queued", queued, AtomicLong::get)
+            .description("Correos pendientes o en envío").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:2000}")
+    public void poll() {
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_POLL; i++) {
+                List<OutboxEmail> batch = outbox.claim(nodeId, batchSize);
+                if (batch.isEmpty() || !dispatch(batch) || batch.size() < batchSize) {
+                    // Cola vacía, último lote incompleto o lote con errores: tras errores se espera al siguiente
+                    // ciclo en lugar de seguir vaciando la cola
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[EmailOutbox] Error procesando la bandeja de salida: " + e.getMessage());
+        } finally {
+            try {
+                queued.set(outbox.countQueued());
+            } catch (Exception e) {
+                // La métrica se actualiza en el siguiente ciclo
+            }
+        }
+    }
+
+    /**
+     * Envía un lote ya reclamado y registra el resultado de cada correo. Devuelve true si no hubo errores.
+     */
+    boolean dispatch(List<OutboxEmail> batch) {
+        Map<Long, Exception> failures = send(batch);
+        List<Long> delivered = batch.stream().map(OutboxEmail::getId).filter(id -> !failures.containsKey(id)).toList();
+        if (!delivered.isEmpty()) {
+            outbox.markSent(delivered, nodeId);
+            sent.increment(delivered.size());
+        }
+        failures.forEach((id, error) -> {
+            String status = outbox.markFailed(id, nodeId, error);
+            if (OutboxEmail.STATUS_FAILED.equals(status)) {
+                failed.increment();
+                System.err.println("[EmailOutbox] Correo " + id + " descartado tras agotar los intentos: " + error.getMessage());
+            } else if (status != null) {
+                retried.increment();
+            }
+        });
+        return failures.isEmpty();
+    }
+
+    private Map<Long, Exception> send(List<OutboxEmail> batch) {
+        Map<Long, Exception> failures = new LinkedHashMap<>();
+        Map<MimeMessage, Long> ids = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        for (OutboxEmail email : batch) {
+            try {
+                MimeMessage message = toMimeMessage(email);
+                messages.add(message);
+                ids.put(message, email.getId());
+            } catch (MessagingException e) {
+                failures.put(email.getId(), e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // Trae el error de cada mensaje que no se entregó; sin detalle, se da el lote por fallido
+            if (e.getFailedMessages().isEmpty()) {
+                ids.values().forEach(id -> failures.put(id, e));
+            }
+            e.getFailedMessages().forEach((message, error) -> {
+                Long id = ids.get(message);
+                if (id != null) {
+                    failures.put(id, error);
+                }
+            });
+        } catch (MailException e) {
+            ids.values().forEach(id -> failures.put(id, e));
+        }
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(OutboxEmail email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody(), true);
+        return message;
+    }
+}
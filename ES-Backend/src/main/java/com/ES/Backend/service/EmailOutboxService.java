@@ -0,0 +1,111 @@
+package com.ES.Backend.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ES.Backend.entity.OutboxEmail;
+import com.ES.Backend.repository.OutboxEmailRepository;
+
+/**
+ * Bandeja de salida de correos en Postgres. {@link #enqueue} se une a la transacción del llamador,
+ * así el correo solo existe si el cambio de negocio se confirmó; el envío lo hace EmailOutboxDispatcher.
+ */
+@Service
+public class EmailOutboxService {
+    private static final List<String> QUEUED = List.of(OutboxEmail.STATUS_PENDING, OutboxEmail.STATUS_SENDING);
+
+    private final OutboxEmailRepository repository;
+    private final int maxAttempts;
+    private final long leaseSeconds;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public EmailOutboxService(OutboxEmailRepository repository,
+                              @Value("${mail.outbox.max-attempts:8}") int maxAttempts,
+                              @Value("${mail.outbox.lease-seconds:120}") long leaseSeconds,
+                              @Value("${mail.outbox.backoff-initial:30s}") Duration initialBackoff,
+                              @Value("${mail.outbox.backoff-max:1h}") Duration maxBackoff) {
+        this.repository = repository;
+        this.maxAttempts = maxAttempts;
+        this.leaseSeconds = leaseSeconds;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Transactional
+    public OutboxEmail enqueue(String to, String subject, String html) {
+        return repository.save(new OutboxEmail(to, subject, html));
+    }
+
+    /**
+     * Reclama hasta {@code limit} correos listos y los marca EN_PROCESO con un lease para este nodo.
+     */
+    @Transactional
+    public List<OutboxEmail> claim(String nodeId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEmail> emails = repository.lockNextAvailable(now, limit);
+        for (OutboxEmail email : emails) {
+            email.setStatus(OutboxEmail.STATUS_SENDING);
+            email.setLockedBy(nodeId);
+            email.setLockedUntil(now.plusSeconds(leaseSeconds));
+            email.setAttempts(email.getAttempts() + 1);
+        }
+        return repository.saveAll(emails);
+    }
+
+    @Transactional
+    public void markSent(Collection<Long> ids, String nodeId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEmail> emails = repository.findAllById(ids).stream()
+            .filter(email -> nodeId.equals(email.getLockedBy()))
+            .toList();
+        for (OutboxEmail email : emails) {
+            email.setStatus(OutboxEmail.STATUS_SENT);
+            email.setSentAt(now);
+            email.setLastError(null);
+            email.setLockedBy(null);
+            email.setLockedUntil(null);
+        }
+        repository.saveAll(emails);
+    }
+
+    /**
+     * Programa un reintento con espera exponencial o, agotados los intentos, lo marca FALLIDO.
+     * Devuelve el estado resultante.
+     */
+    @Transactional
+    public String markFailed(Long id, String nodeId, Exception error) {
+        OutboxEmail email = repository.findById(id).filter(e -> nodeId.equals(e.getLockedBy())).orElse(null);
+        if (email == null) {
+            return null;
+        }
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        email.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        email.setLockedBy(null);
+        email.setLockedUntil(null);
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus(OutboxEmail.STATUS_FAILED);
+        } else {
+            email.setStatus(OutboxEmail.STATUS_PENDING);
+            email.setNextAttemptAt(LocalDateTime.now().plus(backoff(email.getAttempts())));
+        }
+        repository.save(email);
+        return email.getStatus();
+    }
+
+    public long countQueued() {
+        return repository.countByStatusIn(QUEUED);
+    }
+
+    // 30s, 1m, 2m, 4m... hasta backoff-max
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -0,0 +1,10 @@
+package com.ES.Backend.service;
+
+/**
+ * La contraseña no abre el certificado: reintentar con la misma no sirve de nada.
+ */
+public class InvalidCertificatePasswordException extends RuntimeException {
+    public InvalidCertificatePasswordException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,140 @@
+package com.ES.Backend.service;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ES.Backend.signer.KeyProfile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pares de claves generados de antemano para emitir certificados sin esperar a la búsqueda de primos.
+ * Un hilo de baja prioridad mantiene llena la reserva de cada perfil; si se vacía (aprobaciones masivas)
+ * se genera en línea. Los pares solo viven en memoria y cada uno se entrega una única vez.
+ */
+@Component
+public class KeyPairPool {
+    private final int threads;
+    private final int lowWater;
+    private final Map<KeyProfile, Reserve> reserves = new EnumMap<>(KeyProfile.class);
+    private final List<Thread> generators = new ArrayList<>();
+
+    private static final class Reserve {
+        final KeyProfile profile;
+        final BlockingQueue<KeyPair> queue;
+        final Counter pooled;
+        final Counter inline;
+        final Counter generated;
+        final Counter belowLowWater;
+
+        Reserve(KeyProfile profile, int size, MeterRegistry meterRegistry) {
+            this.profile = profile;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, size));
+            String tag = profile.name();
+            this.pooled = Counter.builder("certificate.keypool.requests").tag("profile", tag).tag("result", "pooled")
+                .description("Pares de claves servidos desde la reserva").register(meterRegistry);
+            this.inline = Counter.builder("certificate.keypool.requests").tag("profile", tag).tag("result", "inline")
+                .description("Pares de claves generados en línea con la reserva vacía").register(meterRegistry);
+            this.generated = Counter.builder("certificate.keypool.generated").tag("profile", tag)
+                .description("Pares de claves generados en segundo plano").register(meterRegistry);
+            this.belowLowWater = Counter.builder("certificate.keypool.low-water").tag("profile", tag)
+                .description("Entregas que dejaron la reserva por debajo del mínimo").register(meterRegistry);
+            Gauge.builder("certificate.keypool.size", queue, BlockingQueue::size).tag("profile", tag)
+                .description("Pares de claves disponibles").register(meterRegistry);
+        }
+    }
+
+    /**
+     * @param rsaSize reserva de RSA_2048 (0 la desactiva)
+     * @param ecSize  reserva de EC_P256; generar P-256 cuesta poco, por defecto no se reserva
+     */
+    public KeyPairPool(MeterRegistry meterRegistry,
+                       @Value("${certificates.key-pool.size:20}") int rsaSize,
+                       @Value("${certificates.key-pool.ec-size:0}") int ecSize,
+                       @Value("${certificates.key-pool.threads:1}") int threads,
+                       @Value("${certificates.key-pool.low-water:5}") int lowWater) {
+        this.threads = Math.max(1, threads);
+        this.lowWater = lowWater;
+        if (rsaSize > 0) {
+            reserves.put(KeyProfile.RSA_2048, new Reserve(KeyProfile.RSA_2048, rsaSize, meterRegistry));
+        }
+        if (ecSize > 0) {
+            reserves.put(KeyProfile.EC_P256, new Reserve(KeyProfile.EC_P256, ecSize, meterRegistry));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Reserve reserve : reserves.values()) {
+            for (int i = 1; i <= threads; i++) {
+                Thread t = new Thread(() -> refill(reserve), "key-pool-" + reserve.profile.name().toLowerCase() + "-" + i);
+                t.setDaemon(true);
+                // La reserva no debe competir con las peticiones: solo usa CPU ociosa
+                t.setPriority(Thread.MIN_PRIORITY);
+                generators.add(t);
+                t.start();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        generators.forEach(Thread::interrupt);
+        reserves.values().forEach(r -> r.queue.clear());
+    }
+
+    /**
+     * Entrega un par del perfil pedido desde la reserva o, si está vacía, lo genera en el hilo que llama.
+     */
+    public KeyPair take(KeyProfile profile) throws NoSuchAlgorithmException {
+        Reserve reserve = reserves.get(profile);
+        if (reserve == null) {
+            return profile.generateKeyPair();
+        }
+        KeyPair pair = reserve.queue.poll();
+        if (pair == null) {
+            reserve.inline.increment();
+            return profile.generateKeyPair();
+        }
+        reserve.pooled.increment();
+        if (reserve.queue.size() < lowWater) {
+            reserve.belowLowWater.increment();
+        }
+        return pair;
+    }
+
+    public int available(KeyProfile profile) {
+        Reserve reserve = reserves.get(profile);
+        return reserve != null ? reserve.queue.size() : 0;
+    }
+
+    private void refill(Reserve reserve) {
+        try {
+            KeyPairGenerator generator = reserve.profile.newGenerator();
+            while (!Thread.currentThread().isInterrupted()) {
+                // put bloquea con la reserva llena y se reanuda en cuanto alguien consume
+                reserve.queue.put(generator.generateKeyPair());
+                reserve.generated.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (NoSuchAlgorithmException e) {
+            System.err.println("No se pudo iniciar la reserva de claves " + reserve.profile + ": " + e.getMessage());
+        }
+    }
+}
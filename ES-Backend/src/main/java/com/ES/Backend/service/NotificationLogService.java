@@ -0,0 +1,196 @@
+package com.ES.Backend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.TextMessage;
+
+import com.ES.Backend.entity.NotificationLogEntry;
+import com.ES.Backend.entity.NotificationSequence;
+import com.ES.Backend.websocket.SessionRegistry;
+import com.ES.Backend.websocket.WsMessage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Registro de las notificaciones WebSocket en Mongo (notification_log). Cada usuario y cada rol tienen
+ * su propio flujo con una secuencia creciente; el mensaje sale con {@code seq} y {@code stream} para que
+ * el cliente guarde hasta dónde ha recibido y, al reconectar, pida solo lo que se perdió.
+ * La escritura en Mongo y la entrega se hacen en un pool propio ({@link #publish}), no en el hilo que notifica.
+ */
+@Service
+public class NotificationLogService {
+    public static final String STREAM_USER = "USER";
+    public static final String STREAM_ROLE = "ROLE";
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Duration retention;
+    private final int replayLimit;
+    // Un hilo por carril; cada flujo va siempre al mismo carril, así sus mensajes se guardan y entregan en orden
+    private final ExecutorService[] lanes;
+
+    public NotificationLogService(MongoTemplate mongoTemplate,
+                                  @Value("${notifications.log.enabled:true}") boolean enabled,
+                                  @Value("${notifications.log.retention:7d}") Duration retention,
+                                  @Value("${notifications.log.replay-limit:200}") int replayLimit,
+                                  @Value("${notifications.log.threads:2}") int threads) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.retention = retention;
+        this.replayLimit = replayLimit;
+        this.lanes = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "notification-log-" + (i + 1);
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            IndexOperations indexes = mongoTemplate.indexOps(NotificationLogEntry.class);
+            indexes.createIndex(new Index().on("stream", Sort.Direction.ASC).on("seq", Sort.Direction.ASC)
+                .unique().named("stream_seq"));
+            indexes.createIndex(new Index().on("createdAt", Sort.Direction.ASC).expire(retention).named("created_at_ttl"));
+        } catch (Exception e) {
+            System.err.println("❌ No se pudieron crear los índices de notification_log: " + e.getMessage());
+        }
+    }
+
+    public static String roleStream(String role) {
+        return "role:" + role;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Encola el mensaje: el carril del flujo lo guarda con {@link #append} y se lo pasa a {@code delivery}.
+     * Quien notifica no espera a Mongo ni al reparto entre nodos.
+     */
+    public void publish(String stream, String streamType, WsMessage message, String coalesceKey,
+                        Consumer<TextMessage> delivery) {
+        try {
+            lanes[Math.floorMod(stream.hashCode(), lanes.length)].execute(() -> {
+                try {
+                    delivery.accept(append(stream, streamType, message, coalesceKey));
+                } catch (Exception e) {
+                    System.err.println("❌ Error entregando la notificación de " + stream + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Apagando la aplicación
+        }
+    }
+
+    /**
+     * Guarda el mensaje en el flujo y lo devuelve serializado con su número de secuencia. Si Mongo
+     * falla, el mensaje se envía igualmente sin secuencia (no se podrá reenviar).
+     */
+    public TextMessage append(String stream, String streamType, WsMessage message, String coalesceKey) {
+        String json = SessionRegistry.serialize(message).getPayload();
+        if (!enabled) {
+            return new TextMessage(json);
+        }
+        try {
+            long seq = nextSeq(stream);
+            String payload = "{\"seq\":" + seq + ",\"stream\":\"" + streamType + "\"," + json.substring(1);
+            mongoTemplate.insert(new NotificationLogEntry(stream, seq, payload, coalesceKey));
+            return new TextMessage(payload);
+        } catch (Exception e) {
+            System.err.println("❌ Error guardando la notificación de " + stream + ": " + e.getMessage());
+            return new TextMessage(json);
+        }
+    }
+
+    /** Última secuencia asignada en el flujo (0 si nunca tuvo mensajes). */
+    public long head(String stream) {
+        if (!enabled) {
+            return 0;
+        }
+        NotificationSequence sequence = mongoTemplate.findById(stream, NotificationSequence.class);
+        return sequence != null ? sequence.getSeq() : 0;
+    }
+
+    /**
+     * Mensajes del flujo posteriores a {@code afterSeq} en un único REPLAY, en orden. De los que comparten
+     * clave de sustitución solo va el último. {@code truncated} indica que faltan mensajes (más de
+     * notifications.log.replay-limit o ya caducados) y el cliente debe recalcular su estado.
+     * Devuelve null si no hay nada pendiente.
+     */
+    public WsMessage.Replay replay(String stream, String streamType, long afterSeq) {
+        Query query = Query.query(Criteria.where("stream").is(stream).and("seq").gt(afterSeq))
+            .with(Sort.by(Sort.Direction.DESC, "seq"))
+            .limit(replayLimit + 1);
+        List<NotificationLogEntry> entries = mongoTemplate.find(query, NotificationLogEntry.class);
+        if (entries.isEmpty()) {
+            return null;
+        }
+        boolean truncated = entries.size() > replayLimit;
+        if (truncated) {
+            entries = entries.subList(0, replayLimit);
+        }
+        long oldest = entries.get(entries.size() - 1).getSeq();
+        truncated |= oldest > afterSeq + 1;
+
+        // De más reciente a más antiguo: la primera aparición de cada clave es la que vale
+        Set<String> keys = new HashSet<>();
+        List<String> payloads = new ArrayList<>(entries.size());
+        for (NotificationLogEntry entry : entries) {
+            if (entry.getCoalesceKey() != null && !keys.add(entry.getCoalesceKey())) {
+                continue;
+            }
+            payloads.add(entry.getPayload());
+        }
+        Collections.reverse(payloads);
+        return new WsMessage.Replay(streamType, entries.get(0).getSeq(), truncated, "[" + String.join(",", payloads) + "]");
+    }
+
+    private long nextSeq(String stream) {
+        NotificationSequence sequence = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(stream)),
+            new Update().inc("seq", 1),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            NotificationSequence.class);
+        return sequence.getSeq();
+    }
+}
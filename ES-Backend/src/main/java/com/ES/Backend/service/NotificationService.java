@@ -1,15 +1,22 @@
 package com.ES.Backend.service;
 
 import com.ES.Backend.controller.WebSocketController;
-import com.ES.Backend.entity.Certificate;
 import com.ES.Backend.entity.CertificateRequest;
-import com.ES.Backend.entity.DocumentMetadata;
 import com.ES.Backend.repository.CertificateRepository;
 import com.ES.Backend.repository.DocumentMetadataRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class NotificationService {
@@ -23,6 +30,27 @@ public class NotificationService {
     @Autowired
     private DocumentMetadataRepository documentMetadataRepository;
 
+    // Ventana para agrupar los avisos de nuevas solicitudes de certificado a administradores; 0 = enviar al momento
+    @Value("${notifications.admin.coalesce-window-ms:0}")
+    private long adminCoalesceWindowMs;
+
+    // Ventana para agrupar las comprobaciones de estado de un mismo usuario (subidas o emisiones seguidas); 0 = al momento
+    @Value("${notifications.status.debounce-ms:0}")
+    private long statusDebounceMs;
+
+    private final List<String> pendingAdminRequests = new ArrayList<>();
+    private final Set<String> pendingStatusChecks = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService coalescer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "notification-coalescer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        coalescer.shutdownNow();
+    }
+
     /**
      * Envía notificación cuando se aprueba una solicitud de certificado
      */
@@ -49,14 +77,11 @@ public class NotificationService {
      * Envía notificación cuando un usuario tiene documentos pendientes de firma
      */
     public void notifyPendingDocuments(String userEmail) {
-        List<DocumentMetadata> allDocs = documentMetadataRepository.findByuser(userEmail);
-        List<DocumentMetadata> pendingDocs = allDocs.stream()
-            .filter(doc -> !doc.isSigned())
-            .toList();
+        long pending = documentMetadataRepository.countPendingByuser(userEmail);
         
-        if (!pendingDocs.isEmpty()) {
+        if (pending > 0) {
             String title = "Documentos Pendientes";
-            String message = "Tienes " + pendingDocs.size() + " documento(s) pendiente(s) de firma.";
+            String message = "Tienes " + pending + " documento(s) pendiente(s) de firma.";
             
             webSocketController.sendNotificationToUser(userEmail, title, message);
         }
@@ -66,9 +91,7 @@ public class NotificationService {
      * Envía notificación cuando un usuario no tiene certificados
      */
     public void notifyNoCertificates(String userEmail) {
-        List<Certificate> certificates = certificateRepository.findByuser(userEmail);
-        
-        if (certificates.isEmpty()) {
+        if (!certificateRepository.existsByuser(userEmail)) {
             String title = "Certificado Requerido";
             String message = "Necesitas un certificado digital para firmar documentos. Solicita uno desde el dashboard.";
             
@@ -80,9 +103,7 @@ public class NotificationService {
      * Envía notificación cuando un usuario no tiene documentos
      */
     public void notifyNoDocuments(String userEmail) {
-        List<DocumentMetadata> documents = documentMetadataRepository.findByuser(userEmail);
-        
-        if (documents.isEmpty()) {
+        if (!documentMetadataRepository.existsByuser(userEmail)) {
             String title = "Sin Documentos";
             String message = "No tienes documentos cargados. Sube tu primer documento para comenzar.";
             
@@ -94,16 +115,85 @@ public class NotificationService {
      * Envía notificación a administradores sobre nueva solicitud de certificado
      */
     public void notifyAdminNewCertificateRequest(CertificateRequest request) {
-        String title = "Nueva Solicitud de Certificado";
-        String message = "El usuario " + request.getUserEmail() + " ha solicitado un certificado digital.";
+        if (adminCoalesceWindowMs <= 0) {
+            sendAdminNewCertificateRequests(List.of(request.getUserEmail()));
+            return;
+        }
+        // Durante una ráfaga se acumulan y se manda un solo aviso al cerrar la ventana
+        synchronized (pendingAdminRequests) {
+            pendingAdminRequests.add(request.getUserEmail());
+            if (pendingAdminRequests.size() == 1) {
+                coalescer.schedule(this::flushAdminNewCertificateRequests, adminCoalesceWindowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flushAdminNewCertificateRequests() {
+        List<String> userEmails;
+        synchronized (pendingAdminRequests) {
+            userEmails = List.copyOf(pendingAdminRequests);
+            pendingAdminRequests.clear();
+        }
+        try {
+            sendAdminNewCertificateRequests(userEmails);
+        } catch (Exception e) {
+            System.err.println("Error enviando aviso agrupado a administradores: " + e.getMessage());
+        }
+    }
+
+    private void sendAdminNewCertificateRequests(List<String> userEmails) {
+        if (userEmails.isEmpty()) {
+            return;
+        }
+        if (userEmails.size() == 1) {
+            String title = "Nueva Solicitud de Certificado";
+            String message = "El usuario " + userEmails.get(0) + " ha solicitado un certificado digital.";
+            webSocketController.sendNotificationToAdmin(title, message);
+            return;
+        }
+        List<String> distinct = userEmails.stream().distinct().toList();
+        String title = "Nuevas Solicitudes de Certificado";
+        String message = userEmails.size() + " nuevas solicitudes de certificado de "
+            + String.join(", ", distinct.subList(0, Math.min(5, distinct.size())))
+            + (distinct.size() > 5 ? " y " + (distinct.size() - 5) + " usuario(s) más." : ".");
+        webSocketController.sendNotificationToAdmin(title, message);
+    }
+
+    /**
+     * Envía a los administradores un único resumen de una aprobación o rechazo masivo
+     */
+    public void notifyAdminBulkCertificateRequests(String action, String adminEmail, int succeeded, int failed) {
+        String title = "Solicitudes de Certificado Procesadas";
+        String message = adminEmail + " " + action + " " + succeeded + " solicitud(es) de certificado"
+            + (failed > 0 ? "; " + failed + " no se pudieron procesar." : ".");
         
         webSocketController.sendNotificationToAdmin(title, message);
     }
 
     /**
-     * Verifica y envía notificaciones de estado al usuario
+     * Verifica y envía notificaciones de estado al usuario. Las llamadas seguidas para el mismo usuario
+     * se agrupan en una sola comprobación al cerrar la ventana, con el estado ya actualizado.
      */
     public void checkAndNotifyUserStatus(String userEmail) {
+        if (statusDebounceMs <= 0) {
+            sendUserStatus(userEmail);
+            return;
+        }
+        if (pendingStatusChecks.add(userEmail)) {
+            coalescer.schedule(() -> flushUserStatus(userEmail), statusDebounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushUserStatus(String userEmail) {
+        pendingStatusChecks.remove(userEmail);
+        try {
+            sendUserStatus(userEmail);
+        } catch (Exception e) {
+            System.err.println("Error enviando el estado de " + userEmail + ": " + e.getMessage());
+        }
+    }
+
+    private void sendUserStatus(String userEmail) {
         // Verificar si no tiene certificados
         notifyNoCertificates(userEmail);
         
@@ -0,0 +1,65 @@
+package com.ES.Backend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ES.Backend.signer.PadesSigner;
+import com.ES.Backend.signer.SignaturePlacement;
+import com.ES.Backend.signer.SigningKey;
+
+/**
+ * Firma PDFs en memoria con el motor PAdES en Java (reemplaza la ejecución de firmar-pdf.py).
+ */
+@Service
+public class PdfSignatureService {
+    private final PadesSigner signer;
+
+    public PdfSignatureService(@Value("${signing.signature-size:0}") int signatureSize) {
+        this.signer = new PadesSigner(signatureSize);
+    }
+
+    /**
+     * Añade una firma incremental al PDF y devuelve el documento firmado.
+     */
+    public byte[] sign(byte[] pdf, SigningKey key, SignaturePlacement placement) throws IOException {
+        return signer.sign(pdf, key, placement);
+    }
+
+    /**
+     * Firma el archivo y lo reemplaza por la versión firmada.
+     */
+    public void signFile(Path document, SigningKey key, SignaturePlacement placement) throws IOException {
+        byte[] signed = sign(Files.readAllBytes(document), key, placement);
+        replaceWithSigned(document, signed);
+    }
+
+    /**
+     * Número de firmas que ya tiene el documento.
+     */
+    public int countSignatures(Path document) throws IOException {
+        try (PDDocument doc = Loader.loadPDF(document.toFile())) {
+            return doc.getSignatureDictionaries().size();
+        }
+    }
+
+    /**
+     * Escribe el PDF firmado junto al original y lo mueve encima de una vez,
+     * para que nunca quede un documento a medio escribir.
+     */
+    public void replaceWithSigned(Path document, byte[] signed) throws IOException {
+        Path tmp = document.resolveSibling(document.getFileName() + ".signing");
+        Files.write(tmp, signed);
+        try {
+            Files.move(tmp, document, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, document, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ES.Backend.service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.ES.Backend.controller.WebSocketController;
+import com.ES.Backend.entity.SignatureRequest;
+import com.ES.Backend.entity.SignatureRequestUser;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Avisos WebSocket de una solicitud de firma nueva. Se emiten tras el commit (nunca de una solicitud que
+ * acabó en rollback) y desde un pool propio, así la petición que crea la solicitud no espera a Mongo
+ * ni al reparto entre sesiones.
+ */
+@Component
+public class SignatureRequestNotifier {
+
+    public record Recipient(String email, SignatureRequestUser userRequest) {
+    }
+
+    public record Created(SignatureRequest request, List<Recipient> recipients) {
+    }
+
+    private final WebSocketController webSocketController;
+    private final ExecutorService executor;
+
+    public SignatureRequestNotifier(WebSocketController webSocketController,
+                                    @Value("${signature-requests.notify-threads:2}") int threads) {
+        this.webSocketController = webSocketController;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "signature-notify-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCreated(Created event) {
+        try {
+            executor.execute(() -> notify(event));
+        } catch (RejectedExecutionException e) {
+            // Apagando la aplicación
+        }
+    }
+
+    private void notify(Created event) {
+        SignatureRequest request = event.request();
+        String documentPath = request.getDocumentPath();
+        String documentName = documentPath.substring(documentPath.lastIndexOf("/") + 1);
+        for (Recipient recipient : event.recipients()) {
+            try {
+                // Enviar solicitud de firma por WebSocket
+                webSocketController.sendSignatureRequestToUser(recipient.email(), request, recipient.userRequest());
+
+                // También enviar notificación general
+                webSocketController.sendNotificationToUser(
+                    recipient.email(),
+                    "Nueva Solicitud de Firma",
+                    "Tienes una nueva solicitud de firma pendiente para el documento: " + documentName
+                );
+            } catch (Exception e) {
+                System.err.println("Error enviando notificación WebSocket para usuario " + recipient.userRequest().getUserId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,22 +1,40 @@
 package com.ES.Backend.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.Comparator;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.ES.Backend.data.KeysetPageDTO;
+import com.ES.Backend.data.SignatureRequestDTO;
+import com.ES.Backend.data.SignatureInboxItemDTO;
+import com.ES.Backend.data.SignatureOutboxItemDTO;
 import com.ES.Backend.entity.SignatureRequest;
 import com.ES.Backend.entity.SignatureRequestUser;
+import com.ES.Backend.entity.SigningJob;
 import com.ES.Backend.entity.User;
 import com.ES.Backend.repository.SignatureRequestRepository;
 import com.ES.Backend.repository.SignatureRequestUserRepository;
 import com.ES.Backend.entity.DocumentMetadata;
 import com.ES.Backend.controller.WebSocketController;
+import com.ES.Backend.signer.SignaturePlacement;
+import com.ES.Backend.signer.SigningKey;
 
 @Service
 public class SignatureRequestService {
@@ -25,6 +43,11 @@ public class SignatureRequestService {
     private final CertificateService certificateService;
     private final DocumentMetadataService documentMetadataService;
     private final UserService userService;
+    private final PdfSignatureService pdfSignatureService;
+    private final SigningJobService signingJobService;
+    private final SigningKeyUnlocker signingKeyUnlocker;
+    private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
     private WebSocketController webSocketController;
@@ -33,57 +56,118 @@ public class SignatureRequestService {
                                    SignatureRequestUserRepository signatureRequestUserRepository,
                                    CertificateService certificateService,
                                    DocumentMetadataService documentMetadataService,
-                                   UserService userService) {
+                                   UserService userService,
+                                   PdfSignatureService pdfSignatureService,
+                                   SigningJobService signingJobService,
+                                   SigningKeyUnlocker signingKeyUnlocker,
+                                   EmailService emailService,
+                                   ApplicationEventPublisher eventPublisher) {
         this.signatureRequestRepository = signatureRequestRepository;
         this.signatureRequestUserRepository = signatureRequestUserRepository;
         this.certificateService = certificateService;
         this.documentMetadataService = documentMetadataService;
         this.userService = userService;
+        this.pdfSignatureService = pdfSignatureService;
+        this.signingJobService = signingJobService;
+        this.signingKeyUnlocker = signingKeyUnlocker;
+        this.emailService = emailService;
+        this.eventPublisher = eventPublisher;
     }
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Transactional
+    public SignatureRequest createSignatureRequest(SignatureRequest request, String requestedByEmail) {
+        request.setRequestedBy(userService.findByEmail(requestedByEmail).getId());
+        return createSignatureRequest(request);
+    }
+
+    @Transactional
     public SignatureRequest createSignatureRequest(SignatureRequest request) {
         if (request.getUsers() != null) {
             for (SignatureRequestUser user : request.getUsers()) {
                 user.setSignatureRequest(request);
             }
         }
+        request.setPendingResponders(request.getUsers() != null ? request.getUsers().size() : 0);
+        request.setPermittedResponders(0);
         
         SignatureRequest savedRequest = signatureRequestRepository.save(request);
         
-        // Enviar notificaciones WebSocket a todos los usuarios involucrados
-        if (savedRequest.getUsers() != null) {
+        if (savedRequest.getUsers() != null && !savedRequest.getUsers().isEmpty()) {
+            // Todos los firmantes en una consulta, no una por usuario
+            Map<Long, User> users = userService.findAllById(savedRequest.getUsers().stream()
+                    .map(SignatureRequestUser::getUserId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+            
+            String documentName = savedRequest.getDocumentPath().substring(savedRequest.getDocumentPath().lastIndexOf("/") + 1);
+            List<SignatureRequestNotifier.Recipient> recipients = new ArrayList<>();
             for (SignatureRequestUser userRequest : savedRequest.getUsers()) {
-                try {
-                    User user = userService.findById(userRequest.getUserId());
-                    if (user != null) {
-                        // Enviar solicitud de firma por WebSocket
-                        webSocketController.sendSignatureRequestToUser(user.getEmail(), savedRequest, userRequest);
-                        
-                        // También enviar notificación general
-                        webSocketController.sendNotificationToUser(
-                            user.getEmail(), 
-                            "Nueva Solicitud de Firma", 
-                            "Tienes una nueva solicitud de firma pendiente para el documento: " + 
-                            savedRequest.getDocumentPath().substring(savedRequest.getDocumentPath().lastIndexOf("/") + 1)
-                        );
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error enviando notificación WebSocket para usuario " + userRequest.getUserId() + ": " + e.getMessage());
+                User user = users.get(userRequest.getUserId());
+                if (user == null) {
+                    System.err.println("Usuario " + userRequest.getUserId() + " no encontrado; no se le notifica la solicitud " + savedRequest.getId());
+                    continue;
                 }
+                recipients.add(new SignatureRequestNotifier.Recipient(user.getEmail(), userRequest));
+                // El correo va a la bandeja de salida en esta misma transacción
+                emailService.sendSignatureRequestNotification(user, documentName);
             }
+            
+            // Los avisos WebSocket salen tras el commit, fuera del hilo de la petición
+            eventPublisher.publishEvent(new SignatureRequestNotifier.Created(savedRequest, recipients));
         }
         
         return savedRequest;
     }
 
-    public Optional<SignatureRequest> getSignatureRequest(Long id) {
-        return signatureRequestRepository.findById(id);
+    /**
+     * Solicitud con sus firmantes en una sola consulta (sin contraseñas de certificado).
+     */
+    @Transactional(readOnly = true)
+    public Optional<SignatureRequestDTO> getSignatureRequest(Long id) {
+        return SignatureRequestDTO.fromRows(signatureRequestRepository.findDetailRows(id)).stream().findFirst();
     }
 
-    public List<SignatureRequest> getAllSignatureRequests() {
-        return signatureRequestRepository.findAll();
+    /**
+     * Solicitudes en las que el usuario es firmante, filtradas por el estado de su respuesta (null = todas).
+     */
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<SignatureInboxItemDTO> getInbox(String userEmail, String status, Long before, int limit) {
+        Long userId = userService.findByEmail(userEmail).getId();
+        Limit pageSize = pageSize(limit);
+        long cursor = before != null ? before : Long.MAX_VALUE;
+        List<SignatureInboxItemDTO> items = status != null
+            ? signatureRequestUserRepository.findInbox(userId, status, cursor, pageSize)
+            : signatureRequestUserRepository.findInbox(userId, cursor, pageSize);
+        return new KeysetPageDTO<>(items, items.size() == pageSize.max() ? items.get(items.size() - 1).requestId() : null);
+    }
+
+    /**
+     * Solicitudes creadas por el usuario, filtradas por el estado de la solicitud (null = todas).
+     */
+    @Transactional(readOnly = true)
+    public KeysetPageDTO<SignatureOutboxItemDTO> getOutbox(String userEmail, String status, Long before, int limit) {
+        Long userId = userService.findByEmail(userEmail).getId();
+        Limit pageSize = pageSize(limit);
+        long cursor = before != null ? before : Long.MAX_VALUE;
+        List<SignatureOutboxItemDTO> items = status != null
+            ? signatureRequestRepository.findOutbox(userId, status, cursor, pageSize)
+            : signatureRequestRepository.findOutbox(userId, cursor, pageSize);
+        return new KeysetPageDTO<>(items, items.size() == pageSize.max() ? items.get(items.size() - 1).requestId() : null);
+    }
+
+    private static Limit pageSize(int limit) {
+        return Limit.of(Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
     }
 
+    /**
+     * Guarda la respuesta de un firmante. La respuesta es definitiva: los contadores de la solicitud solo
+     * descuentan la primera, así que cambiarla después (p. ej. de PERMITIDO a DENEGADO) se rechaza con 409.
+     */
+    @Transactional
     public SignatureRequestUser saveSignatureRequestUser(SignatureRequestUser user) {
         // Permitir ambos formatos: signatureRequest: { id } o signatureRequestId
         Long srId = findSignatureRequestId(user);
@@ -96,37 +180,56 @@ public class SignatureRequestService {
             .orElseThrow(() -> new IllegalArgumentException("SignatureRequest no encontrado con ID: " + srId));
         user.setSignatureRequest(sr);
         
+        if (user.getId() != null && signatureRequestUserRepository.findStatusById(user.getId())
+                .filter(status -> !"PENDIENTE".equalsIgnoreCase(status)).isPresent()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "El firmante ya respondió a esta solicitud");
+        }
+
+        // Solo la primera respuesta de cada firmante cuenta para completar la solicitud
+        boolean firstResponse = false;
+        if (user.getId() != null && user.getStatus() != null && !"PENDIENTE".equalsIgnoreCase(user.getStatus())) {
+            if (sr.getPendingResponders() == null) {
+                signatureRequestRepository.initResponderCounts(srId);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            firstResponse = signatureRequestUserRepository.markResponded(user.getId(), user.getStatus(), now) == 1;
+            if (!firstResponse) {
+                // Otra petición respondió entre la comprobación y el UPDATE
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "El firmante ya respondió a esta solicitud");
+            }
+            user.setRespondedAt(now);
+        }
+        
         SignatureRequestUser savedUser = signatureRequestUserRepository.save(user);
         
         // Enviar actualización por WebSocket
+        User userEntity = null;
         try {
-            User userEntity = userService.findById(user.getUserId());
-            if (userEntity != null) {
-                String statusMessage = "PERMITIDO".equals(user.getStatus()) ? 
-                    "Has permitido la firma del documento" : 
-                    "Has denegado la firma del documento";
-                
-                webSocketController.sendSignatureRequestUpdate(
-                    userEntity.getEmail(), 
-                    srId, 
-                    user.getStatus(), 
-                    statusMessage
-                );
-            }
+            userEntity = userService.findById(user.getUserId());
+            String statusMessage = "PERMITIDO".equals(user.getStatus()) ? 
+                "Has permitido la firma del documento" : 
+                "Has denegado la firma del documento";
+            
+            webSocketController.sendSignatureRequestUpdate(
+                userEntity.getEmail(), 
+                srId, 
+                user.getStatus(), 
+                statusMessage
+            );
         } catch (Exception e) {
             System.err.println("Error enviando actualización WebSocket: " + e.getMessage());
         }
         
-        // Obtener la solicitud actualizada
-        SignatureRequest request = signatureRequestRepository.findById(savedUser.getSignatureRequest().getId()).orElse(null);
-        if (request != null) {
-            boolean allResponded = request.getUsers().stream()
-                .allMatch(u -> u.getStatus() != null && !u.getStatus().equalsIgnoreCase("PENDIENTE"));
-            if (allResponded) {
-                try {
-                    processSignatures(request.getId());
-                } catch (Exception e) {
-                    e.printStackTrace();
+        // Una fila actualizada en lugar de recargar la solicitud con todos sus firmantes. El UPDATE bloquea
+        // la fila hasta el commit: de dos respuestas finales simultáneas solo una ve el contador a cero
+        if (firstResponse) {
+            int permitted = "PERMITIDO".equalsIgnoreCase(user.getStatus()) ? 1 : 0;
+            if (signatureRequestRepository.recordResponse(srId, permitted) == 1) {
+                SignatureRequestRepository.ResponderCounts counts = signatureRequestRepository.findResponderCounts(srId).orElse(null);
+                if (counts != null && counts.getPendingResponders() == 0 && counts.getPermittedResponders() > 0) {
+                    // La firma grupal se hace en un worker; aquí solo se encola (en esta misma transacción)
+                    String requestedBy = userEntity != null ? userEntity.getEmail() : userService.findById(savedUser.getUserId()).getEmail();
+                    signingJobService.enqueueSignatureRequest(requestedBy, srId);
                 }
             }
         }
@@ -170,8 +273,9 @@ public class SignatureRequestService {
         return null;
     }
 
-    public List<SignatureRequestUser> getUsersByRequest(SignatureRequest request) {
-        return request.getUsers();
+    @Transactional(readOnly = true)
+    public Optional<List<SignatureRequestDTO.Signer>> getUsersByRequest(Long id) {
+        return getSignatureRequest(id).map(SignatureRequestDTO::users);
     }
 
 
@@ -183,10 +287,14 @@ public class SignatureRequestService {
     /**
      * Procesa la firma grupal: desencripta certificados y firma en orden.
      * Actualiza la metadata del documento como firmado.
+     * Lo ejecuta SigningJobWorker; si un reintento llega con la solicitud ya completada no hace nada, y si un
+     * intento anterior ya reemplazó el PDF pero no llegó a confirmar COMPLETADO, no lo vuelve a firmar.
      */
-    public void processSignatures(Long signatureRequestId) throws Exception {
-        SignatureRequest request = signatureRequestRepository.findById(signatureRequestId)
+    @Transactional
+    public void processSignatures(SigningJob job) throws Exception {
+        SignatureRequest request = signatureRequestRepository.findWithUsersById(job.getSignatureRequestId())
                 .orElseThrow(() -> new IllegalArgumentException("Solicitud de firma no encontrada"));
+        if ("COMPLETADO".equals(request.getStatus())) return;
         List<SignatureRequestUser> users = request.getUsers();
         if (users == null || users.isEmpty()) throw new IllegalStateException("No hay usuarios en la solicitud");
 
@@ -201,43 +309,33 @@ public class SignatureRequestService {
                 .toList();
         if (permitted.isEmpty()) throw new IllegalStateException("Ningún usuario permitió la firma");
 
-        // Obtener el documento original
-        String pdfInput = request.getDocumentPath();
-        String pdfOutput = null;
-        String lastSigned = pdfInput;
-
-        for (SignatureRequestUser user : permitted) {
-            // 1. Desencriptar certificado
-            byte[] p12Bytes = certificateService.decrypt(user.getCertificateId(), user.getCertificatePassword().toCharArray());
-            String tempP12Path = "files/uploads/tmp/user_" + user.getUserId() + "_temp.p12";
-            Files.write(Paths.get(tempP12Path), p12Bytes);
-
-            // 2. Definir PDF de salida
-            pdfOutput = lastSigned.replace(".pdf", "_signed_" + user.getUserId() + ".pdf");
+        Path document = Paths.get(request.getDocumentPath());
+        if (signingJobService.signedByEarlierAttempt(job, document)) {
+            System.out.println("[processSignatures] El trabajo " + job.getId() + " ya había firmado el PDF; solo se completa la solicitud");
+        } else {
+            // Obtener el documento original y encadenar las firmas en memoria
+            byte[] signed = Files.readAllBytes(document);
 
-            // 3. Ejecutar script Python
-            ProcessBuilder pb = new ProcessBuilder(
-                "python", "src/main/java/com/ES/Backend/signer/firmar-pdf.py",
-                tempP12Path, user.getCertificatePassword(), lastSigned, pdfOutput,
-                String.valueOf(user.getPage()), String.valueOf(user.getPosX()), String.valueOf(user.getPosY()),
-                String.valueOf(user.getPosX()+300), String.valueOf(user.getPosY()+100)
-            );
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            try (java.util.Scanner s = new java.util.Scanner(process.getInputStream()).useDelimiter("\\A")) {
-                String output = s.hasNext() ? s.next() : "";
-                int exitCode = process.waitFor();
-                Files.deleteIfExists(Paths.get(tempP12Path));
-                if (exitCode != 0) {
-                    throw new RuntimeException("Error al firmar PDF para usuario " + user.getUserId() + ": " + output);
+            // Los certificados se desbloquean en paralelo; las firmas se aplican en orden
+            List<SigningKeyUnlocker.KeyRequest> keyRequests = permitted.stream()
+                    .map(u -> new SigningKeyUnlocker.KeyRequest(u.getCertificateId(), u.getCertificatePassword().toCharArray()))
+                    .toList();
+            try (SigningKeyUnlocker.Pending keys = signingKeyUnlocker.unlockAll(keyRequests)) {
+                for (int i = 0; i < permitted.size(); i++) {
+                    SignatureRequestUser user = permitted.get(i);
+                    SigningKey key = keys.get(i);
+                    try {
+                        signed = pdfSignatureService.sign(signed, key,
+                            SignaturePlacement.at(user.getPage(), user.getPosX(), user.getPosY()));
+                    } catch (Exception e) {
+                        throw new RuntimeException("Error al firmar PDF para usuario " + user.getUserId() + ": " + e.getMessage(), e);
+                    }
                 }
             }
-            lastSigned = pdfOutput;
-        }
 
-        // Al final, reemplazar el original por el firmado final
-        Files.deleteIfExists(Paths.get(request.getDocumentPath()));
-        Files.move(Paths.get(lastSigned), Paths.get(request.getDocumentPath()));
+            // Al final, reemplazar el original por el firmado final
+            pdfSignatureService.replaceWithSigned(document, signed);
+        }
         // Actualizar metadata del documento como firmado
         DocumentMetadata metadata = null;
         List<DocumentMetadata> docs = documentMetadataService.getDocumentsByUser(users.get(0).getUserId().toString());
@@ -265,6 +363,7 @@ public class SignatureRequestService {
                         "Firma Completada",
                         "El documento ha sido firmado exitosamente por todos los usuarios"
                     );
+                    emailService.sendSignatureCompletedNotification(user, document.getFileName().toString());
                 }
             } catch (Exception e) {
                 System.err.println("Error enviando notificación de finalización: " + e.getMessage());
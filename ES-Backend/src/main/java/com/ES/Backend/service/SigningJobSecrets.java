@@ -0,0 +1,93 @@
+package com.ES.Backend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cifra la contraseña del certificado mientras el trabajo espera en signing_job (AES-GCM con una clave del
+ * servidor). La tabla y sus copias de seguridad solo ven el texto cifrado; el nodo que reclama el trabajo
+ * lo descifra a memoria, y la columna se borra cuando el trabajo termina. La clave es obligatoria y debe ser
+ * la misma en todos los nodos, o un trabajo no se podría retomar en otro.
+ */
+@Component
+public class SigningJobSecrets {
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+
+    public SigningJobSecrets(@Value("${signing.jobs.secret-key:}") String secretKey) {
+        if (secretKey == null || secretKey.isBlank()) {
+            throw new IllegalStateException("signing.jobs.secret-key no está configurada (SIGNING_JOBS_SECRET_KEY);"
+                + " genera una con: openssl rand -base64 32");
+        }
+        byte[] raw = Base64.getDecoder().decode(secretKey.trim());
+        if (raw.length != 16 && raw.length != 24 && raw.length != 32) {
+            throw new IllegalStateException("signing.jobs.secret-key debe ser una clave AES de 16, 24 o 32 bytes en Base64");
+        }
+        this.key = new SecretKeySpec(raw, "AES");
+        Arrays.fill(raw, (byte) 0);
+    }
+
+    /**
+     * Devuelve Base64(iv || texto cifrado) de la contraseña.
+     */
+    public String seal(char[] password) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        byte[] plain = toBytes(password);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] encrypted = cipher.doFinal(plain);
+            byte[] out = new byte[IV_LENGTH + encrypted.length];
+            System.arraycopy(iv, 0, out, 0, IV_LENGTH);
+            System.arraycopy(encrypted, 0, out, IV_LENGTH, encrypted.length);
+            return Base64.getEncoder().encodeToString(out);
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    /**
+     * Descifra lo que produjo {@link #seal}; falla si se cifró con otra clave o se alteró.
+     */
+    public char[] open(String sealed) throws GeneralSecurityException {
+        byte[] data = Base64.getDecoder().decode(sealed);
+        if (data.length <= IV_LENGTH) {
+            throw new GeneralSecurityException("Contraseña cifrada inválida");
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+        byte[] plain = cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+        try {
+            CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(plain));
+            char[] password = Arrays.copyOfRange(chars.array(), chars.position(), chars.limit());
+            Arrays.fill(chars.array(), '\0');
+            return password;
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    private static byte[] toBytes(char[] password) {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit());
+        Arrays.fill(buffer.array(), (byte) 0);
+        return bytes;
+    }
+}
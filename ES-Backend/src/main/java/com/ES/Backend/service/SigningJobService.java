@@ -0,0 +1,275 @@
+package com.ES.Backend.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ES.Backend.controller.WebSocketController;
+import com.ES.Backend.entity.DocumentMetadata;
+import com.ES.Backend.entity.SignatureRequest;
+import com.ES.Backend.entity.SignatureRequestUser;
+import com.ES.Backend.entity.SigningJob;
+import com.ES.Backend.entity.User;
+import com.ES.Backend.repository.SignatureRequestRepository;
+import com.ES.Backend.repository.SigningJobRepository;
+import com.ES.Backend.signer.SignaturePlacement;
+import com.ES.Backend.signer.SigningKey;
+
+/**
+ * Cola persistente de trabajos de firma: alta, reclamo con lease, cierre y avisos por WebSocket.
+ */
+@Service
+public class SigningJobService {
+    private static final List<String> ACTIVE_OR_DONE = List.of(
+        SigningJob.STATUS_PENDING, SigningJob.STATUS_RUNNING, SigningJob.STATUS_COMPLETED);
+
+    private final SigningJobRepository jobRepository;
+    private final SignatureRequestRepository signatureRequestRepository;
+    private final DocumentMetadataService documentMetadataService;
+    private final CertificateService certificateService;
+    private final PdfSignatureService pdfSignatureService;
+    private final UserService userService;
+    private final WebSocketController webSocketController;
+    private final SigningJobSecrets secrets;
+
+    @Value("${signing.jobs.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${signing.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    public SigningJobService(SigningJobRepository jobRepository,
+                             SignatureRequestRepository signatureRequestRepository,
+                             DocumentMetadataService documentMetadataService,
+                             CertificateService certificateService,
+                             PdfSignatureService pdfSignatureService,
+                             UserService userService,
+                             WebSocketController webSocketController,
+                             SigningJobSecrets secrets) {
+        this.jobRepository = jobRepository;
+        this.signatureRequestRepository = signatureRequestRepository;
+        this.documentMetadataService = documentMetadataService;
+        this.certificateService = certificateService;
+        this.pdfSignatureService = pdfSignatureService;
+        this.userService = userService;
+        this.webSocketController = webSocketController;
+        this.secrets = secrets;
+    }
+
+    /**
+     * Encola la firma de un documento. La contraseña solo llega a la tabla cifrada con la clave del servidor.
+     */
+    public SigningJob enqueueDocument(String requestedBy, String documentId, String certificateId,
+                                      char[] certificatePassword, int page, float x, float y) throws GeneralSecurityException {
+        SigningJob job = jobRepository.save(SigningJob.forDocument(
+            requestedBy, documentId, certificateId, secrets.seal(certificatePassword), page, x, y));
+        notifyProgress(job, "Firma en cola");
+        return job;
+    }
+
+    /**
+     * Encola la firma grupal, salvo que ya exista un trabajo activo o terminado para la solicitud.
+     */
+    public Optional<SigningJob> enqueueSignatureRequest(String requestedBy, Long signatureRequestId) {
+        if (jobRepository.existsBySignatureRequestIdAndStatusIn(signatureRequestId, ACTIVE_OR_DONE)) {
+            return Optional.empty();
+        }
+        SigningJob job = jobRepository.save(SigningJob.forSignatureRequest(requestedBy, signatureRequestId));
+        notifyProgress(job, "Firma grupal en cola");
+        return Optional.of(job);
+    }
+
+    public Optional<SigningJob> getJob(Long id) {
+        return jobRepository.findById(id);
+    }
+
+    /**
+     * Un trabajo lo puede consultar quien lo pidió o, si es grupal, cualquier firmante de la solicitud.
+     */
+    @Transactional(readOnly = true)
+    public boolean canView(SigningJob job, String userEmail) {
+        if (userEmail.equals(job.getRequestedBy())) {
+            return true;
+        }
+        if (!SigningJob.TYPE_GROUP.equals(job.getType())) {
+            return false;
+        }
+        Long userId = userService.findByEmail(userEmail).getId();
+        return signatureRequestRepository.findWithUsersById(job.getSignatureRequestId())
+            .map(r -> r.getUsers().stream().anyMatch(u -> userId.equals(u.getUserId())))
+            .orElse(false);
+    }
+
+    /**
+     * Reclama hasta {@code limit} trabajos para este nodo y los deja EN_PROCESO con un lease nuevo.
+     * Las filas quedan bloqueadas solo durante esta transacción corta, no mientras se firma.
+     * La contraseña se descifra en la memoria del trabajo devuelto; la fila conserva el texto cifrado hasta que el
+     * trabajo termina, para que otro nodo pueda retomarlo si este cae o pierde el lease.
+     */
+    @Transactional
+    public List<SigningJob> claim(String nodeId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<SigningJob> jobs = jobRepository.lockNextAvailable(now, limit);
+        for (SigningJob job : jobs) {
+            job.setStatus(SigningJob.STATUS_RUNNING);
+            job.setLockedBy(nodeId);
+            job.setLockedUntil(now.plusSeconds(leaseSeconds));
+            job.setAttempts(job.getAttempts() + 1);
+            if (job.getSealedPassword() != null) {
+                try {
+                    job.setPassword(secrets.open(job.getSealedPassword()));
+                } catch (GeneralSecurityException | IllegalArgumentException e) {
+                    // Cifrada con otra clave (p. ej. antes de rotar signing.jobs.secret-key): runDocumentJob lo notificará
+                    System.err.println("[SigningJobService] No se pudo descifrar la contraseña del trabajo " + job.getId());
+                }
+            }
+        }
+        return jobRepository.saveAll(jobs);
+    }
+
+    /**
+     * Alarga el lease de los trabajos que este nodo tiene en curso; devuelve cuántos conserva.
+     */
+    public int renewLeases(Collection<Long> jobIds, String nodeId) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        return jobRepository.renewLeases(jobIds, nodeId, LocalDateTime.now().plusSeconds(leaseSeconds));
+    }
+
+    /**
+     * Firma un documento individual (el trabajo que antes hacía signDocument en la petición HTTP).
+     * Es idempotente: si un intento anterior ya firmó el PDF (lease vencido o caída antes de marcarlo
+     * como firmado), no añade una segunda firma.
+     */
+    public void runDocumentJob(SigningJob job) throws Exception {
+        DocumentMetadata metadata = documentMetadataService.findDocument(job.getDocumentId())
+            .orElseThrow(() -> new IllegalArgumentException("Documento no encontrado"));
+        if (metadata.isSigned()) {
+            System.out.println("[SigningJobService] Documento " + job.getDocumentId() + " ya firmado, trabajo " + job.getId() + " sin cambios");
+            return;
+        }
+        Path file = Paths.get(metadata.getFilePath());
+        if (signedByEarlierAttempt(job, file)) {
+            System.out.println("[SigningJobService] El trabajo " + job.getId() + " ya había firmado el PDF; solo se marca como firmado");
+            metadata.setSigned(true);
+            documentMetadataService.updateDocument(metadata);
+            return;
+        }
+        if (job.getPassword() == null) {
+            throw new IllegalStateException("La contraseña del certificado ya no está disponible; vuelve a solicitar la firma");
+        }
+        SigningKey key = certificateService.unlockSigningKey(job.getCertificateId(), job.getPassword());
+        pdfSignatureService.signFile(file, key,
+            SignaturePlacement.at(job.getPage(), job.getPosX(), job.getPosY()));
+        metadata.setSigned(true);
+        documentMetadataService.updateDocument(metadata);
+    }
+
+    /**
+     * Indica si un intento anterior de este trabajo ya firmó el PDF. El primer intento guarda cuántas firmas
+     * tenía el archivo; si un reintento encuentra más, la firma se aplicó aunque el trabajo no llegara a cerrarse.
+     * El recuento se confirma en su propia transacción para que no se pierda si se deshace la de la firma grupal.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean signedByEarlierAttempt(SigningJob job, Path file) throws IOException {
+        int signatures = pdfSignatureService.countSignatures(file);
+        if (job.getSignaturesBefore() == null) {
+            jobRepository.recordSignaturesBefore(job.getId(), signatures);
+            job.setSignaturesBefore(signatures);
+            return false;
+        }
+        return signatures > job.getSignaturesBefore();
+    }
+
+    @Transactional
+    public void markCompleted(SigningJob claimed, String nodeId) {
+        jobRepository.findById(claimed.getId()).filter(job -> nodeId.equals(job.getLockedBy())).ifPresent(job -> {
+            job.setStatus(SigningJob.STATUS_COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+            job.setLastError(null);
+            release(job);
+            jobRepository.save(job);
+            notifyProgress(job, "Documento firmado correctamente");
+        });
+    }
+
+    /**
+     * Devuelve el trabajo a la cola si le quedan intentos; si no, o si el error no se arregla reintentando
+     * (contraseña incorrecta, certificado o documento inexistente), lo marca FALLIDO. Al reintentar, la fila
+     * conserva la contraseña cifrada.
+     */
+    @Transactional
+    public void markFailed(SigningJob claimed, String nodeId, Exception error) {
+        jobRepository.findById(claimed.getId()).filter(job -> nodeId.equals(job.getLockedBy())).ifPresent(job -> {
+            String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            job.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+            if (job.getAttempts() < maxAttempts && !isTerminal(error)) {
+                job.setStatus(SigningJob.STATUS_PENDING);
+                job.setLockedBy(null);
+                job.setLockedUntil(null);
+                jobRepository.save(job);
+                notifyProgress(job, "Error al firmar, se reintentará");
+            } else {
+                job.setStatus(SigningJob.STATUS_FAILED);
+                job.setCompletedAt(LocalDateTime.now());
+                release(job);
+                jobRepository.save(job);
+                notifyProgress(job, "Error al firmar: " + job.getLastError());
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public void notifyProgress(SigningJob job, String message) {
+        for (String email : recipients(job)) {
+            webSocketController.sendSigningJobUpdate(email, job, message);
+        }
+    }
+
+    // Errores que se repetirían igual en cada intento (y cada uno costaría otra derivación PBKDF2)
+    private static boolean isTerminal(Exception error) {
+        return error instanceof InvalidCertificatePasswordException
+            || error instanceof IllegalArgumentException
+            || error instanceof IllegalStateException;
+    }
+
+    // La contraseña cifrada solo se guarda mientras el trabajo pueda ejecutarse
+    private static void release(SigningJob job) {
+        job.setLockedBy(null);
+        job.setLockedUntil(null);
+        job.setSealedPassword(null);
+    }
+
+    private List<String> recipients(SigningJob job) {
+        List<String> emails = new ArrayList<>();
+        emails.add(job.getRequestedBy());
+        if (SigningJob.TYPE_GROUP.equals(job.getType())) {
+            SignatureRequest request = signatureRequestRepository.findWithUsersById(job.getSignatureRequestId()).orElse(null);
+            if (request != null && request.getUsers() != null) {
+                for (SignatureRequestUser participant : request.getUsers()) {
+                    try {
+                        User user = userService.findById(participant.getUserId());
+                        if (!emails.contains(user.getEmail())) {
+                            emails.add(user.getEmail());
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Usuario no encontrado para aviso de firma: " + participant.getUserId());
+                    }
+                }
+            }
+        }
+        return emails;
+    }
+}
@@ -0,0 +1,125 @@
+package com.ES.Backend.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ES.Backend.entity.SigningJob;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pool de firma de este nodo. Cada cierto tiempo reclama tantos trabajos como hilos libres tenga,
+ * así varios contenedores del backend se reparten la cola sin pisarse.
+ */
+@Component
+public class SigningJobWorker {
+    private final SigningJobService jobService;
+    private final SignatureRequestService signatureRequestService;
+    private final ExecutorService executor;
+    private final Semaphore freeWorkers;
+    // Trabajos que este nodo está ejecutando; el heartbeat les renueva el lease
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final String nodeId;
+
+    public SigningJobWorker(SigningJobService jobService,
+                            SignatureRequestService signatureRequestService,
+                            @Value("${signing.jobs.workers:0}") int workers,
+                            @Value("${signing.jobs.node-id:}") String nodeId) {
+        this.jobService = jobService;
+        this.signatureRequestService = signatureRequestService;
+        int size = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(size, r -> {
+            Thread t = new Thread(r, "signing-worker-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.freeWorkers = new Semaphore(size);
+        // pid@host identifica al nodo si no se configura uno
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+    }
+
+    @Scheduled(fixedDelayString = "${signing.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        int free = freeWorkers.availablePermits();
+        if (free == 0) {
+            return;
+        }
+        List<SigningJob> jobs;
+        try {
+            jobs = jobService.claim(nodeId, free);
+        } catch (Exception e) {
+            System.err.println("[SigningJobWorker] Error reclamando trabajos: " + e.getMessage());
+            return;
+        }
+        for (SigningJob job : jobs) {
+            freeWorkers.acquireUninterruptibly();
+            executor.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Renueva el lease de los trabajos en curso para que una firma larga no parezca un nodo caído.
+     */
+    @Scheduled(fixedDelayString = "${signing.jobs.heartbeat-interval-ms:60000}")
+    public void heartbeat() {
+        if (running.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(running);
+        try {
+            int kept = jobService.renewLeases(ids, nodeId);
+            if (kept < ids.size()) {
+                System.err.println("[SigningJobWorker] " + (ids.size() - kept) + " trabajos en curso perdieron el lease");
+            }
+        } catch (Exception e) {
+            System.err.println("[SigningJobWorker] Error renovando leases: " + e.getMessage());
+        }
+    }
+
+    private void run(SigningJob job) {
+        System.out.println("[SigningJobWorker] " + nodeId + " procesa trabajo " + job.getId()
+            + " (" + job.getType() + ", intento " + job.getAttempts() + ")");
+        jobService.notifyProgress(job, "Firmando documento");
+        running.add(job.getId());
+        try {
+            if (SigningJob.TYPE_GROUP.equals(job.getType())) {
+                signatureRequestService.processSignatures(job);
+            } else {
+                jobService.runDocumentJob(job);
+            }
+            jobService.markCompleted(job, nodeId);
+        } catch (Exception e) {
+            System.err.println("[SigningJobWorker] Error en trabajo " + job.getId() + ": " + e.getMessage());
+            e.printStackTrace();
+            jobService.markFailed(job, nodeId, e);
+        } finally {
+            running.remove(job.getId());
+            job.wipePassword();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Lo que no termine queda EN_PROCESO y otro nodo lo retoma al vencer el lease
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,166 @@
+package com.ES.Backend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ES.Backend.signer.SigningKey;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caché opcional de claves de firma ya desbloqueadas, para no repetir PBKDF2 y el parseo del .p12
+ * cuando un usuario firma varios documentos seguidos con el mismo certificado.
+ * La clave de la caché es el id del certificado más un hash de la contraseña, nunca la contraseña.
+ * Las entradas caducan por TTL y, al llenarse, se descarta la menos usada (LRU).
+ * <p>
+ * Las claves descartadas no se sobrescriben: las PrivateKey del proveedor de la JDK no admiten destroy()
+ * y cada firma en curso usa el mismo objeto, así que solo se sueltan las referencias y las recoge el GC.
+ * Una clave desbloqueada puede seguir en memoria hasta {@code signing.key-cache.ttl} más lo que tarde el GC.
+ */
+@Component
+public class SigningKeyCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        SigningKey load() throws Exception;
+    }
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxSize;
+    // Pepper por proceso: el hash almacenado no sirve para probar contraseñas fuera de esta JVM
+    private final byte[] pepper = new byte[32];
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    private record Entry(String certificateId, SigningKey key, long expiresAt) {
+    }
+
+    public SigningKeyCache(MeterRegistry meterRegistry,
+                           @Value("${signing.key-cache.enabled:false}") boolean enabled,
+                           @Value("${signing.key-cache.ttl:5m}") Duration ttl,
+                           @Value("${signing.key-cache.max-size:100}") int maxSize) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        // nextBytes y no generateSeed: este último lee la fuente de entropía del sistema y puede bloquear el arranque
+        new SecureRandom().nextBytes(pepper);
+        this.hits = Counter.builder("signing.key.cache.requests").tag("result", "hit")
+            .description("Claves de firma servidas desde la caché").register(meterRegistry);
+        this.misses = Counter.builder("signing.key.cache.requests").tag("result", "miss")
+            .description("Claves de firma desbloqueadas con PBKDF2").register(meterRegistry);
+        this.evictions = Counter.builder("signing.key.cache.evictions")
+            .description("Claves descartadas por TTL, tamaño o invalidación").register(meterRegistry);
+        Gauge.builder("signing.key.cache.size", this, SigningKeyCache::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Devuelve la clave en caché o la desbloquea con {@code loader} y la guarda.
+     * Una contraseña distinta genera otra entrada, así que una contraseña incorrecta nunca acierta.
+     */
+    public SigningKey get(String certificateId, char[] password, Loader loader) throws Exception {
+        if (!enabled) {
+            return loader.load();
+        }
+        String cacheKey = cacheKey(certificateId, password);
+        synchronized (this) {
+            Entry entry = entries.get(cacheKey);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.key();
+            }
+            if (entry != null) {
+                entries.remove(cacheKey);
+                evictions.increment();
+            }
+        }
+        // El KDF corre fuera del lock para no serializar desbloqueos de certificados distintos
+        misses.increment();
+        SigningKey key = loader.load();
+        synchronized (this) {
+            Entry previous = entries.put(cacheKey, new Entry(certificateId, key, System.nanoTime() + ttlNanos));
+            if (previous != null && previous.key() != key) {
+                evictions.increment();
+            }
+            removeExpired();
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Descarta todas las claves de un certificado (cualquier contraseña).
+     */
+    public synchronized void invalidate(String certificateId) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.certificateId().equals(certificateId)) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void removeExpired() {
+        long now = System.nanoTime();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.expiresAt() - now <= 0) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private String cacheKey(String certificateId, char[] password) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] passwordBytes = new byte[encoded.remaining()];
+        encoded.get(passwordBytes);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(pepper);
+            digest.update(certificateId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(passwordBytes);
+            return certificateId + ":" + Base64.getEncoder().encodeToString(digest.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        } finally {
+            Arrays.fill(passwordBytes, (byte) 0);
+            if (encoded.hasArray()) {
+                Arrays.fill(encoded.array(), (byte) 0);
+            }
+        }
+    }
+}
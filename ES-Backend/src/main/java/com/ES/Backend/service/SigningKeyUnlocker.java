@@ -0,0 +1,112 @@
+package com.ES.Backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ES.Backend.signer.SigningKey;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Desbloquea los certificados de una firma grupal en paralelo. Cada descifrado cuesta una derivación
+ * PBKDF2 completa, así que se reparten en un pool acotado al número de CPUs mientras la cadena de firmas
+ * consume las claves en orden a medida que están listas.
+ */
+@Component
+public class SigningKeyUnlocker {
+    private final CertificateService certificateService;
+    private final ExecutorService pool;
+    private final boolean parallel;
+
+    public record KeyRequest(String certificateId, char[] password) {
+    }
+
+    public SigningKeyUnlocker(CertificateService certificateService,
+                              @Value("${signing.unlock.parallel:true}") boolean parallel,
+                              @Value("${signing.unlock.threads:0}") int threads) {
+        this.certificateService = certificateService;
+        this.parallel = parallel;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(size, r -> {
+            Thread t = new Thread(r, "key-unlock-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Lanza el desbloqueo de todas las claves; el resultado conserva el orden de las peticiones.
+     * Con {@code signing.unlock.parallel=false} cada clave se descifra al pedirla, como antes.
+     */
+    public Pending unlockAll(List<KeyRequest> requests) {
+        List<CompletableFuture<SigningKey>> futures = new ArrayList<>(requests.size());
+        for (KeyRequest request : requests) {
+            futures.add(parallel
+                ? CompletableFuture.supplyAsync(() -> unlock(request), pool)
+                : null);
+        }
+        return new Pending(requests, futures);
+    }
+
+    private SigningKey unlock(KeyRequest request) {
+        try {
+            return certificateService.unlockSigningKey(request.certificateId(), request.password());
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Claves en curso de desbloqueo. Cerrarlo cancela las que aún no empezaron.
+     */
+    public final class Pending implements AutoCloseable {
+        private final List<KeyRequest> requests;
+        private final List<CompletableFuture<SigningKey>> futures;
+
+        private Pending(List<KeyRequest> requests, List<CompletableFuture<SigningKey>> futures) {
+            this.requests = requests;
+            this.futures = futures;
+        }
+
+        /**
+         * Espera la clave {@code index}; los errores de descifrado se propagan tal cual.
+         */
+        public SigningKey get(int index) throws Exception {
+            CompletableFuture<SigningKey> future = futures.get(index);
+            if (future == null) {
+                KeyRequest request = requests.get(index);
+                return certificateService.unlockSigningKey(request.certificateId(), request.password());
+            }
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ex ? ex : e;
+            }
+        }
+
+        @Override
+        public void close() {
+            for (CompletableFuture<SigningKey> future : futures) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        }
+    }
+}
@@ -7,8 +7,10 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +27,7 @@ public class UserService implements UserDetailsService {
         this.passwordEncoder = new BCryptPasswordEncoder();
     }
 
+    @Transactional
     public User registerUser(String firstName, String lastName, String email, String password) {
         // Check if user already exists
         if (userRepository.existsByEmail(email)) {
@@ -87,6 +90,7 @@ public class UserService implements UserDetailsService {
     }
     
     // Request a password reset by generating and emailing a reset code
+    @Transactional
     public void requestPasswordReset(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -96,6 +100,14 @@ public class UserService implements UserDetailsService {
         emailService.sendPasswordResetCode(email, resetCode);
     }
     
+    // Activa o desactiva el resumen periódico de correos del usuario
+    public User setDigestEmails(String email, boolean enabled) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setDigestEmails(enabled);
+        return userRepository.save(user);
+    }
+    
     // Confirm password reset, setting new password if code matches
     public User resetPassword(String email, String resetCode, String newPassword) {
         User user = userRepository.findByEmailAndPasswordResetCode(email, resetCode)
@@ -121,6 +133,13 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
     }
 
+    /**
+     * Busca varios usuarios en una sola consulta. Los IDs que no existen no aparecen en el resultado.
+     */
+    public List<User> findAllById(Collection<Long> ids) {
+        return userRepository.findAllById(ids);
+    }
+
     /**
      * Obtiene todos los usuarios
      */
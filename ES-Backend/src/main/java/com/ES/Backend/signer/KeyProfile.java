@@ -0,0 +1,56 @@
+package com.ES.Backend.signer;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.ECGenParameterSpec;
+
+import org.bouncycastle.asn1.x509.KeyUsage;
+
+/**
+ * Tipo de clave de un certificado de usuario. EC_P256 da firmas más rápidas y un CMS más pequeño;
+ * RSA_2048 se mantiene por compatibilidad y es el valor por defecto.
+ * Ed25519 no se ofrece: los lectores de PDF habituales no validan firmas PAdES con EdDSA.
+ */
+public enum KeyProfile {
+    RSA_2048,
+    EC_P256;
+
+    public KeyPairGenerator newGenerator() throws NoSuchAlgorithmException {
+        try {
+            return switch (this) {
+                case RSA_2048 -> {
+                    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+                    keyGen.initialize(2048);
+                    yield keyGen;
+                }
+                case EC_P256 -> {
+                    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC");
+                    keyGen.initialize(new ECGenParameterSpec("secp256r1"));
+                    yield keyGen;
+                }
+            };
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new IllegalStateException("Curva no soportada para " + this, e);
+        }
+    }
+
+    public KeyPair generateKeyPair() throws NoSuchAlgorithmException {
+        return newGenerator().generateKeyPair();
+    }
+
+    /**
+     * keyUsage del certificado: una clave EC no sirve para cifrar claves (keyEncipherment).
+     */
+    public int keyUsage() {
+        return switch (this) {
+            case RSA_2048 -> KeyUsage.digitalSignature | KeyUsage.keyEncipherment;
+            case EC_P256 -> KeyUsage.digitalSignature;
+        };
+    }
+
+    public static KeyProfile orDefault(KeyProfile profile) {
+        return profile != null ? profile : RSA_2048;
+    }
+}
@@ -0,0 +1,277 @@
+package com.ES.Backend.signer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.ExternalSigningSupport;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.SignatureOptions;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDSignatureField;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.cms.CMSAttributes;
+import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
+import org.bouncycastle.asn1.ess.ESSCertIDv2;
+import org.bouncycastle.asn1.ess.SigningCertificateV2;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x500.style.IETFUtils;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.IssuerSerial;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cms.CMSAttributeTableGenerator;
+import org.bouncycastle.cms.CMSSignedDataGenerator;
+import org.bouncycastle.cms.CMSTypedData;
+import org.bouncycastle.cms.DefaultSignedAttributeTableGenerator;
+import org.bouncycastle.cms.SignerInfoGenerator;
+import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+/**
+ * Motor de firma PAdES en memoria, equivalente a firmar-pdf.py (pyHanko) sin procesos ni archivos temporales.
+ * Añade una firma incremental ETSI.CAdES.detached en el siguiente campo SigN libre, con el sello QR.
+ */
+public class PadesSigner {
+    private static final DateTimeFormatter STAMP_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss z");
+
+    // Atributos firmados (signing-certificate-v2, digest), identificador del firmante y envoltorio SignedData
+    private static final int CMS_OVERHEAD = 2048;
+
+    private final int signatureSize;
+
+    /**
+     * @param signatureSize bytes reservados en /Contents para el CMS; 0 los calcula según la clave y su cadena
+     */
+    public PadesSigner(int signatureSize) {
+        this.signatureSize = signatureSize;
+    }
+
+    public byte[] sign(byte[] pdf, SigningKey key, SignaturePlacement placement) throws IOException {
+        try (PDDocument doc = Loader.loadPDF(pdf);
+             SignatureOptions options = new SignatureOptions()) {
+            int pageIndex = resolvePage(doc, placement.page());
+            PDPage page = doc.getPage(pageIndex);
+            String fieldName = nextSignatureFieldName(doc);
+
+            X509Certificate cert = key.certificate();
+            X500Name subject = subjectOf(cert);
+            String cn = rdnValue(subject, BCStyle.CN);
+            String qrData = "Name: " + cn
+                + "\nEmail: " + rdnValue(subject, BCStyle.EmailAddress)
+                + "\nOrganization: " + rdnValue(subject, BCStyle.O);
+
+            ZonedDateTime now = ZonedDateTime.now();
+            PDSignature signature = new PDSignature();
+            signature.setFilter(PDSignature.FILTER_ADOBE_PPKLITE);
+            signature.setSubFilter(PDSignature.SUBFILTER_ETSI_CADES_DETACHED);
+            signature.setName(cn);
+            signature.setSignDate(GregorianCalendar.from(now));
+
+            int reserved = reservedSize(key);
+            options.setPreferredSignatureSize(reserved);
+            options.setPage(pageIndex);
+            doc.addSignature(signature, options);
+
+            PDSignatureField field = findField(doc, signature);
+            field.setPartialName(fieldName);
+            PDAnnotationWidget widget = field.getWidgets().get(0);
+            attachStamp(doc, page, widget, placement, qrData, STAMP_TIME.format(now));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(pdf.length + 2 * reserved + 16 * 1024);
+            ExternalSigningSupport external = doc.saveIncrementalForExternalSigning(out);
+            external.setSignature(buildCms(external.getContent(), key));
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error generando la firma PAdES: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mismo criterio que firmar-pdf.py: Sig{n+1}, donde n es el número de campos de firma "Sig*".
+     * Si ese nombre ya existe se avanza al siguiente libre.
+     */
+    public static String nextSignatureFieldName(PDDocument doc) {
+        PDAcroForm acroForm = doc.getDocumentCatalog().getAcroForm(null);
+        if (acroForm == null) {
+            return "Sig1";
+        }
+        Set<String> names = new HashSet<>();
+        int count = 0;
+        for (PDField f : acroForm.getFields()) {
+            String name = f.getPartialName();
+            if (name == null) {
+                continue;
+            }
+            names.add(name);
+            if (f instanceof PDSignatureField && name.startsWith("Sig")) {
+                count++;
+            }
+        }
+        int next = count + 1;
+        while (names.contains("Sig" + next)) {
+            next++;
+        }
+        return "Sig" + next;
+    }
+
+    /**
+     * Tamaño de /Contents: la cadena de certificados embebida, la firma (RSA: módulo; ECDSA: DER de r y s)
+     * y margen para atributos firmados y estructura CMS. Con claves EC el PDF crece bastante menos.
+     */
+    int reservedSize(SigningKey key) throws CertificateEncodingException {
+        if (signatureSize > 0) {
+            return signatureSize;
+        }
+        int size = CMS_OVERHEAD;
+        for (X509Certificate cert : key.chain()) {
+            size += cert.getEncoded().length;
+        }
+        if (key.privateKey() instanceof RSAKey rsa) {
+            size += (rsa.getModulus().bitLength() + 7) / 8;
+        } else if (key.privateKey() instanceof ECKey ec) {
+            size += 2 * ((ec.getParams().getCurve().getField().getFieldSize() + 7) / 8) + 9;
+        } else {
+            size += 1024;
+        }
+        return size;
+    }
+
+    private static int resolvePage(PDDocument doc, int page) {
+        int count = doc.getNumberOfPages();
+        int index = page < 0 ? count + page : page;
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Página " + page + " fuera de rango (el documento tiene " + count + ")");
+        }
+        return index;
+    }
+
+    private static PDSignatureField findField(PDDocument doc, PDSignature signature) throws IOException {
+        for (PDSignatureField field : doc.getSignatureFields()) {
+            if (field.getCOSObject().getDictionaryObject(COSName.V) == signature.getCOSObject()) {
+                return field;
+            }
+        }
+        throw new IllegalStateException("No se encontró el campo de firma recién creado");
+    }
+
+    private static void attachStamp(PDDocument doc, PDPage page, PDAnnotationWidget widget, SignaturePlacement placement,
+                                    String qrData, String timestamp) throws IOException {
+        float x = Math.min(placement.x1(), placement.x2());
+        float y = Math.min(placement.y1(), placement.y2());
+        widget.setRectangle(new PDRectangle(x, y, placement.width(), placement.height()));
+        widget.setPage(page);
+        widget.setPrinted(true);
+
+        PDAppearanceDictionary appearance = new PDAppearanceDictionary();
+        appearance.setNormalAppearance(QrStampAppearance.create(doc, placement.width(), placement.height(),
+            qrData, QrStampAppearance.stampLines(qrData, timestamp)));
+        widget.setAppearance(appearance);
+
+        List<PDAnnotation> annotations = page.getAnnotations();
+        boolean present = annotations.stream().anyMatch(a -> a.getCOSObject() == widget.getCOSObject());
+        if (!present) {
+            annotations.add(widget);
+            // /Annots directo para que la actualización incremental lo reescriba junto con la página
+            page.setAnnotations(annotations);
+            page.getCOSObject().setNeedToBeUpdated(true);
+        }
+    }
+
+    private static byte[] buildCms(InputStream content, SigningKey key) throws Exception {
+        X509Certificate cert = key.certificate();
+        ContentSigner contentSigner = new JcaContentSignerBuilder(key.signatureAlgorithm()).build(key.privateKey());
+
+        // PAdES B-B: signing-certificate-v2 obligatorio y sin signing-time (la hora va en /M)
+        AttributeTable essAttributes = new AttributeTable(signingCertificateV2(cert));
+        CMSAttributeTableGenerator signedAttributes = params ->
+            new DefaultSignedAttributeTableGenerator(essAttributes).getAttributes(params).remove(CMSAttributes.signingTime);
+
+        SignerInfoGenerator signerInfo = new JcaSignerInfoGeneratorBuilder(new JcaDigestCalculatorProviderBuilder().build())
+            .setSignedAttributeGenerator(signedAttributes)
+            .build(contentSigner, cert);
+
+        CMSSignedDataGenerator generator = new CMSSignedDataGenerator();
+        generator.addSignerInfoGenerator(signerInfo);
+        generator.addCertificates(new JcaCertStore(Arrays.asList(key.chain())));
+        return generator.generate(new ByteRangeContent(content), false).getEncoded(ASN1Encoding.DER);
+    }
+
+    private static Attribute signingCertificateV2(X509Certificate cert) throws Exception {
+        X509CertificateHolder holder = new JcaX509CertificateHolder(cert);
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(cert.getEncoded());
+        IssuerSerial issuerSerial = new IssuerSerial(new GeneralNames(new GeneralName(holder.getIssuer())), holder.getSerialNumber());
+        SigningCertificateV2 value = new SigningCertificateV2(new ESSCertIDv2(hash, issuerSerial));
+        return new Attribute(PKCSObjectIdentifiers.id_aa_signingCertificateV2, new DERSet(value));
+    }
+
+    private static X500Name subjectOf(X509Certificate cert) throws Exception {
+        return new JcaX509CertificateHolder(cert).getSubject();
+    }
+
+    private static String rdnValue(X500Name name, ASN1ObjectIdentifier type) {
+        RDN[] rdns = name.getRDNs(type);
+        return rdns.length == 0 ? "" : IETFUtils.valueToString(rdns[0].getFirst().getValue());
+    }
+
+    /**
+     * Contenido firmado: los dos tramos del /ByteRange, leídos directamente del PDF en memoria.
+     */
+    private static final class ByteRangeContent implements CMSTypedData {
+        private final InputStream in;
+
+        ByteRangeContent(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public ASN1ObjectIdentifier getContentType() {
+            return CMSObjectIdentifiers.data;
+        }
+
+        @Override
+        public void write(OutputStream out) throws IOException {
+            in.transferTo(out);
+        }
+
+        @Override
+        public Object getContent() {
+            return in;
+        }
+    }
+}
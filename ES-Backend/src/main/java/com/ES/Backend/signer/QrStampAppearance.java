@@ -0,0 +1,158 @@
+package com.ES.Backend.signer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * Dibuja el sello de firma con el mismo esquema que el QRStampStyle de pyHanko:
+ * borde, código QR a la izquierda y el texto del firmante a la derecha.
+ */
+public final class QrStampAppearance {
+    private static final float BORDER_WIDTH = 3;
+    private static final float PADDING = 5;
+    private static final float MAX_FONT_SIZE = 10;
+    private static final float MIN_FONT_SIZE = 3;
+
+    private QrStampAppearance() {
+    }
+
+    /**
+     * Texto que pyHanko mostraba junto al QR, con el payload en el lugar de la url.
+     */
+    public static List<String> stampLines(String qrData, String timestamp) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Digital version available at");
+        String[] payload = qrData.split("\n");
+        lines.add("this url: " + payload[0]);
+        for (int i = 1; i < payload.length; i++) {
+            lines.add(payload[i]);
+        }
+        lines.add("Timestamp: " + timestamp);
+        return lines;
+    }
+
+    public static PDAppearanceStream create(PDDocument doc, float width, float height,
+                                            String qrData, List<String> lines) throws IOException {
+        PDAppearanceStream appearance = new PDAppearanceStream(doc);
+        appearance.setBBox(new PDRectangle(width, height));
+        appearance.setResources(new PDResources());
+
+        PDFont font = new PDType1Font(Standard14Fonts.FontName.COURIER);
+        BitMatrix qr = encodeQr(qrData);
+
+        try (PDPageContentStream cs = new PDPageContentStream(doc, appearance)) {
+            // Borde
+            cs.setStrokingColor(0f, 0f, 0f);
+            cs.setLineWidth(BORDER_WIDTH);
+            cs.addRect(BORDER_WIDTH / 2, BORDER_WIDTH / 2, width - BORDER_WIDTH, height - BORDER_WIDTH);
+            cs.stroke();
+
+            // Código QR: un rectángulo por cada tramo horizontal de módulos oscuros
+            float qrSize = Math.max(0, Math.min(height, width) - 2 * (BORDER_WIDTH + PADDING));
+            float qrX = BORDER_WIDTH + PADDING;
+            float qrY = (height - qrSize) / 2;
+            float module = qrSize / qr.getWidth();
+            cs.setNonStrokingColor(0f, 0f, 0f);
+            for (int row = 0; row < qr.getHeight(); row++) {
+                int col = 0;
+                while (col < qr.getWidth()) {
+                    if (!qr.get(col, row)) {
+                        col++;
+                        continue;
+                    }
+                    int start = col;
+                    while (col < qr.getWidth() && qr.get(col, row)) {
+                        col++;
+                    }
+                    cs.addRect(qrX + start * module, qrY + (qr.getHeight() - 1 - row) * module,
+                        (col - start) * module, module);
+                }
+            }
+            cs.fill();
+
+            // Texto del firmante
+            float textX = qrX + qrSize + PADDING;
+            float textWidth = width - textX - BORDER_WIDTH - PADDING;
+            float textHeight = height - 2 * (BORDER_WIDTH + PADDING);
+            List<String> encodable = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                encodable.add(toEncodable(font, line));
+            }
+            float fontSize = fitFontSize(font, encodable, textWidth, textHeight);
+            float leading = fontSize * 1.2f;
+            float blockHeight = leading * (encodable.size() - 1) + fontSize;
+
+            cs.beginText();
+            cs.setFont(font, fontSize);
+            cs.setLeading(leading);
+            cs.newLineAtOffset(textX, (height + blockHeight) / 2 - fontSize);
+            for (String line : encodable) {
+                cs.showText(line);
+                cs.newLine();
+            }
+            cs.endText();
+        }
+        return appearance;
+    }
+
+    private static BitMatrix encodeQr(String data) throws IOException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        hints.put(EncodeHintType.MARGIN, 1);
+        try {
+            return new QRCodeWriter().encode(data, BarcodeFormat.QR_CODE, 0, 0, hints);
+        } catch (WriterException e) {
+            throw new IOException("No se pudo generar el código QR: " + e.getMessage(), e);
+        }
+    }
+
+    private static float fitFontSize(PDFont font, List<String> lines, float maxWidth, float maxHeight) throws IOException {
+        float widest = 0;
+        for (String line : lines) {
+            widest = Math.max(widest, font.getStringWidth(line) / 1000f);
+        }
+        float size = MAX_FONT_SIZE;
+        if (widest > 0) {
+            size = Math.min(size, maxWidth / widest);
+        }
+        size = Math.min(size, maxHeight / (1.2f * lines.size()));
+        return Math.max(MIN_FONT_SIZE, size);
+    }
+
+    // Las fuentes estándar usan WinAnsiEncoding: se reemplaza lo que no se puede codificar
+    private static String toEncodable(PDFont font, String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            String ch = new String(Character.toChars(cp));
+            try {
+                font.encode(ch);
+                sb.append(ch);
+            } catch (IllegalArgumentException | IOException e) {
+                sb.append('?');
+            }
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+}
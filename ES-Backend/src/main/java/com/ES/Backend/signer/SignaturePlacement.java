@@ -0,0 +1,23 @@
+package com.ES.Backend.signer;
+
+/**
+ * Página (índice desde 0, negativo cuenta desde el final) y caja del sello en coordenadas PDF.
+ */
+public record SignaturePlacement(int page, float x1, float y1, float x2, float y2) {
+
+    // Tamaño del sello que antes se pasaba al script: (x, y) -> (x + 300, y + 100)
+    public static final float STAMP_WIDTH = 300;
+    public static final float STAMP_HEIGHT = 100;
+
+    public static SignaturePlacement at(int page, float x, float y) {
+        return new SignaturePlacement(page, x, y, x + STAMP_WIDTH, y + STAMP_HEIGHT);
+    }
+
+    public float width() {
+        return Math.abs(x2 - x1);
+    }
+
+    public float height() {
+        return Math.abs(y2 - y1);
+    }
+}
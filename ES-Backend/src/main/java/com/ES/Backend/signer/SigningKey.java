@@ -0,0 +1,55 @@
+package com.ES.Backend.signer;
+
+import java.io.ByteArrayInputStream;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Enumeration;
+
+/**
+ * Clave privada desbloqueada y su cadena de certificados, lista para firmar.
+ */
+public record SigningKey(PrivateKey privateKey, X509Certificate[] chain) {
+
+    /**
+     * Carga la primera entrada con clave privada de un .p12 ya descifrado.
+     */
+    public static SigningKey fromPkcs12(byte[] p12Bytes, char[] password) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(new ByteArrayInputStream(p12Bytes), password);
+
+        Enumeration<String> aliases = keyStore.aliases();
+        while (aliases.hasMoreElements()) {
+            String alias = aliases.nextElement();
+            if (!keyStore.isKeyEntry(alias)) {
+                continue;
+            }
+            PrivateKey key = (PrivateKey) keyStore.getKey(alias, password);
+            Certificate[] certs = keyStore.getCertificateChain(alias);
+            if (key == null || certs == null || certs.length == 0) {
+                continue;
+            }
+            X509Certificate[] chain = new X509Certificate[certs.length];
+            for (int i = 0; i < certs.length; i++) {
+                chain[i] = (X509Certificate) certs[i];
+            }
+            return new SigningKey(key, chain);
+        }
+        throw new IllegalArgumentException("El archivo .p12 no contiene una clave privada");
+    }
+
+    public X509Certificate certificate() {
+        return chain[0];
+    }
+
+    /**
+     * Algoritmo de firma CMS acorde al tipo de clave.
+     */
+    public String signatureAlgorithm() {
+        return switch (privateKey.getAlgorithm()) {
+            case "EC", "ECDSA" -> "SHA256withECDSA";
+            default -> "SHA256withRSA";
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package com.ES.Backend.websocket;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.ES.Backend.service.JwtService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Autentica la conexión durante el upgrade HTTP, antes de que exista la sesión WebSocket.
+ * El token llega en {@code ?token=} (el navegador no permite cabeceras en WebSocket) o en Authorization.
+ * Además limita cuántas conexiones nuevas admite el nodo por segundo (websocket.admission.*): el exceso
+ * recibe 429 y el cliente reintenta más tarde, en lugar de saturar la base de datos tras un corte.
+ */
+@Component
+public class HandshakeAuthInterceptor implements HandshakeInterceptor {
+    public static final String IDENTITY_ATTRIBUTE = "ws.identity";
+
+    private final JwtService jwtService;
+    private final UserIdentityCache identities;
+    private final boolean requireToken;
+    private final double permitsPerNano;
+    private final double burst;
+    private double permits;
+    private long refilledAt = System.nanoTime();
+
+    private final Counter accepted;
+    private final Counter throttled;
+    private final Counter unauthorized;
+
+    public HandshakeAuthInterceptor(JwtService jwtService, UserIdentityCache identities, MeterRegistry meterRegistry,
+                                    @Value("${websocket.handshake.require-token:true}") boolean requireToken,
+                                    @Value("${websocket.admission.rate:200}") double ratePerSecond,
+                                    @Value("${websocket.admission.burst:400}") int burst) {
+        this.jwtService = jwtService;
+        this.identities = identities;
+        this.requireToken = requireToken;
+        this.permitsPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.permits = burst;
+        this.accepted = handshakes(meterRegistry, "accepted");
+        this.throttled = handshakes(meterRegistry, "throttled");
+        this.unauthorized = handshakes(meterRegistry, "unauthorized");
+    }
+
+    private static Counter handshakes(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("websocket.handshakes").tag("result", result)
+            .description("Intentos de conexión WebSocket").register(meterRegistry);
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!tryAdmit()) {
+            throttled.increment();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return false;
+        }
+        String token = token(request);
+        if (token == null) {
+            if (requireToken) {
+                unauthorized.increment();
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+            // Cliente antiguo: se autenticará con el mensaje AUTH
+            accepted.increment();
+            return true;
+        }
+        UserIdentityCache.Identity identity;
+        try {
+            identity = identities.get(jwtService.extractUser(token));
+        } catch (Exception e) {
+            identity = null;
+        }
+        if (identity == null) {
+            unauthorized.increment();
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        attributes.put(IDENTITY_ATTRIBUTE, identity);
+        accepted.increment();
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static String token(ServerHttpRequest request) {
+        List<String> values = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().get("token");
+        if (values != null && !values.isEmpty() && !values.get(0).isBlank()) {
+            return values.get(0);
+        }
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            return authorization.substring(7);
+        }
+        return null;
+    }
+
+    /** Token bucket: {@code burst} conexiones de golpe y después websocket.admission.rate por segundo. */
+    private synchronized boolean tryAdmit() {
+        long now = System.nanoTime();
+        permits = Math.min(burst, permits + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        if (permits < 1) {
+            return false;
+        }
+        permits--;
+        return true;
+    }
+}
@@ -0,0 +1,263 @@
+package com.ES.Backend.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Envío asíncrono a las sesiones WebSocket. Cada sesión tiene una cola acotada (websocket.outbound.capacity)
+ * y un pool de hilos dedicado la drena; quien notifica solo encola y nunca espera a un cliente lento.
+ * Si el cliente negoció {@link #BATCH_PROTOCOL}, el drenado espera websocket.outbound.batch-window-ms y manda
+ * los mensajes acumulados en un solo frame (array JSON); los clientes antiguos siguen recibiendo uno por frame.
+ */
+@Component
+public class OutboundMessageDispatcher {
+    public static final String BATCH_PROTOCOL = "es.batch.v1";
+    // Mensajes por turno de una sesión antes de ceder el hilo a las demás
+    private static final int MAX_BURST = 32;
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final Map<String, SessionSendQueue> queues = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+    private final ScheduledExecutorService batchTimer;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long batchWindowMs;
+
+    private final Counter sent;
+    private final Counter dropped;
+    private final Counter coalesced;
+    private final Counter disconnected;
+    private final Counter errors;
+    private final Counter batches;
+    private final Counter batchedSessions;
+    private final Counter compressedSessions;
+    private final DistributionSummary sessionBacklog;
+
+    public OutboundMessageDispatcher(MeterRegistry meterRegistry,
+                                     @Value("${websocket.outbound.capacity:256}") int capacity,
+                                     @Value("${websocket.outbound.overflow-policy:drop-oldest}") String policy,
+                                     @Value("${websocket.outbound.sender-threads:0}") int senderThreads,
+                                     @Value("${websocket.outbound.batch-window-ms:5}") long batchWindowMs) {
+        this.capacity = capacity;
+        this.policy = OverflowPolicy.parse(policy);
+        this.batchWindowMs = batchWindowMs;
+        int threads = senderThreads > 0 ? senderThreads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ws-sender-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.batchTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-batch-timer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.sent = Counter.builder("websocket.outbound.sent")
+            .description("Mensajes WebSocket entregados").register(meterRegistry);
+        this.dropped = Counter.builder("websocket.outbound.dropped").tag("reason", "overflow")
+            .description("Mensajes descartados por cola llena").register(meterRegistry);
+        this.coalesced = Counter.builder("websocket.outbound.dropped").tag("reason", "coalesced")
+            .description("Mensajes sustituidos por uno más reciente con la misma clave").register(meterRegistry);
+        this.disconnected = Counter.builder("websocket.outbound.disconnected")
+            .description("Sesiones cerradas por desbordar su cola").register(meterRegistry);
+        this.errors = Counter.builder("websocket.outbound.errors")
+            .description("Envíos WebSocket fallidos").register(meterRegistry);
+        this.batches = Counter.builder("websocket.outbound.batches")
+            .description("Frames que agrupan varios mensajes").register(meterRegistry);
+        this.batchedSessions = Counter.builder("websocket.sessions.negotiated").tag("feature", "batch")
+            .description("Sesiones que negociaron el envío por lotes").register(meterRegistry);
+        this.compressedSessions = Counter.builder("websocket.sessions.negotiated").tag("feature", PERMESSAGE_DEFLATE)
+            .description("Sesiones que negociaron compresión permessage-deflate").register(meterRegistry);
+        Gauge.builder("websocket.outbound.backlog", queues, q -> q.values().stream().mapToInt(SessionSendQueue::backlog).sum())
+            .description("Mensajes pendientes de enviar en todas las sesiones").register(meterRegistry);
+        // Sin etiqueta por sesión (una serie por conexión no escala): el máximo y los percentiles bastan para ver
+        // clientes que se quedan atrás, y backlog(sessionId) da el detalle de una sesión concreta
+        this.sessionBacklog = DistributionSummary.builder("websocket.session.backlog")
+            .description("Mensajes pendientes en la cola de la sesión al encolar uno nuevo")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    public void register(WebSocketSession session) {
+        boolean batching = BATCH_PROTOCOL.equals(session.getAcceptedProtocol());
+        if (batching) {
+            batchedSessions.increment();
+        }
+        List<WebSocketExtension> extensions = session.getExtensions();
+        if (extensions != null && extensions.stream().anyMatch(e -> PERMESSAGE_DEFLATE.equals(e.getName()))) {
+            compressedSessions.increment();
+        }
+        SessionSendQueue queue = new SessionSendQueue(session, capacity, policy, batching);
+        queues.put(session.getId(), queue);
+    }
+
+    public void unregister(String sessionId) {
+        SessionSendQueue queue = queues.remove(sessionId);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    public void send(String sessionId, WebSocketMessage<?> message) {
+        send(sessionId, message, null);
+    }
+
+    /**
+     * Encola un mensaje para la sesión. Con la política COALESCE, un mensaje pendiente con la misma
+     * {@code coalesceKey} se sustituye por este. Nunca bloquea.
+     */
+    public void send(String sessionId, WebSocketMessage<?> message, String coalesceKey) {
+        SessionSendQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            return;
+        }
+        switch (queue.offer(message, coalesceKey)) {
+            case COALESCED -> coalesced.increment();
+            case DROPPED_OLDEST -> dropped.increment();
+            case OVERFLOW -> {
+                disconnected.increment();
+                System.err.println("⚠️ Cola de salida llena en la sesión " + sessionId + "; se cierra la conexión");
+                execute(() -> close(queue.session(), CloseStatus.SESSION_NOT_RELIABLE));
+                return;
+            }
+            case CLOSED -> {
+                return;
+            }
+            case QUEUED -> {
+            }
+        }
+        sessionBacklog.record(queue.backlog());
+        if (queue.startDrain()) {
+            if (queue.batching() && batchWindowMs > 0) {
+                // Se deja abierta la ventana para que los avisos de los próximos milisegundos viajen juntos
+                schedule(() -> execute(() -> drain(queue)), batchWindowMs);
+            } else {
+                execute(() -> drain(queue));
+            }
+        }
+    }
+
+    /**
+     * Cierra la sesión desde el pool de envío, sin bloquear a quien llama (p. ej. con la conexión medio abierta).
+     */
+    public void disconnect(String sessionId, CloseStatus status) {
+        SessionSendQueue queue = queues.get(sessionId);
+        if (queue != null) {
+            queue.close();
+            execute(() -> close(queue.session(), status));
+        }
+    }
+
+    public int backlog(String sessionId) {
+        SessionSendQueue queue = queues.get(sessionId);
+        return queue != null ? queue.backlog() : 0;
+    }
+
+    private void drain(SessionSendQueue queue) {
+        WebSocketSession session = queue.session();
+        List<String> batch = queue.batching() ? new ArrayList<>() : null;
+        for (int i = 0; i < MAX_BURST; i++) {
+            SessionSendQueue.Pending pending = queue.poll();
+            if (pending == null) {
+                break;
+            }
+            if (!session.isOpen()) {
+                queue.close();
+                return;
+            }
+            if (batch != null && pending.message() instanceof TextMessage text) {
+                batch.add(text.getPayload());
+                continue;
+            }
+            // Pings y sesiones sin lotes: uno por frame, respetando el orden de lo ya agrupado
+            if (batch != null) {
+                sendBatch(session, batch);
+            }
+            sendOne(session, pending.message(), 1);
+        }
+        if (batch != null) {
+            sendBatch(session, batch);
+        }
+        if (queue.continueDrain()) {
+            execute(() -> drain(queue));
+        }
+    }
+
+    private void sendBatch(WebSocketSession session, List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            sendOne(session, new TextMessage(batch.get(0)), 1);
+        } else {
+            batches.increment();
+            sendOne(session, new TextMessage("[" + String.join(",", batch) + "]"), batch.size());
+        }
+        batch.clear();
+    }
+
+    private void sendOne(WebSocketSession session, WebSocketMessage<?> message, int messages) {
+        try {
+            session.sendMessage(message);
+            sent.increment(messages);
+        } catch (Exception e) {
+            errors.increment();
+            System.err.println("❌ Error enviando mensaje en sesión " + session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private void close(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (Exception e) {
+            System.err.println("❌ Error cerrando la sesión " + session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private void schedule(Runnable task, long delayMs) {
+        try {
+            batchTimer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Apagando la aplicación
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Apagando la aplicación
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchTimer.shutdownNow();
+        sender.shutdownNow();
+    }
+}
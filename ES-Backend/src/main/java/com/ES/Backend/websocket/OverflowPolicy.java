@@ -0,0 +1,23 @@
+package com.ES.Backend.websocket;
+
+/**
+ * Qué hacer cuando la cola de salida de una sesión está llena.
+ */
+public enum OverflowPolicy {
+    /** Descarta el mensaje más antiguo de la cola para dejar sitio al nuevo. */
+    DROP_OLDEST,
+    /**
+     * Sustituye en su sitio el mensaje pendiente con la misma clave (p. ej. el progreso de un mismo trabajo);
+     * si no hay ninguno, se comporta como DROP_OLDEST.
+     */
+    COALESCE,
+    /** Cierra la sesión: el cliente reconecta y recupera el estado por HTTP. */
+    DISCONNECT;
+
+    /**
+     * Acepta tanto {@code drop-oldest} como {@code DROP_OLDEST}.
+     */
+    public static OverflowPolicy parse(String value) {
+        return valueOf(value.trim().replace('-', '_').toUpperCase());
+    }
+}
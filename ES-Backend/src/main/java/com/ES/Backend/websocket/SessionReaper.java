@@ -0,0 +1,90 @@
+package com.ES.Backend.websocket;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Heartbeat del servidor: manda un ping a las sesiones sin actividad desde hace websocket.heartbeat.interval-ms
+ * y cierra las que no responden en websocket.heartbeat.timeout-ms (conexiones medio abiertas de móviles),
+ * las que no se autentican a tiempo y las que ya se cerraron sin pasar por afterConnectionClosed.
+ */
+@Component
+public class SessionReaper {
+    private static final String PING_KEY = "ping";
+
+    private final SessionRegistry registry;
+    private final OutboundMessageDispatcher outbound;
+    private final long intervalNanos;
+    private final long timeoutNanos;
+    private final long authTimeoutNanos;
+
+    private final Counter timedOut;
+    private final Counter unauthenticated;
+    private final Counter closed;
+
+    public SessionReaper(SessionRegistry registry, OutboundMessageDispatcher outbound, MeterRegistry meterRegistry,
+                         @Value("${websocket.heartbeat.interval-ms:25000}") long intervalMs,
+                         @Value("${websocket.heartbeat.timeout-ms:60000}") long timeoutMs,
+                         @Value("${websocket.heartbeat.auth-timeout-ms:30000}") long authTimeoutMs) {
+        this.registry = registry;
+        this.outbound = outbound;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.authTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(authTimeoutMs);
+
+        this.timedOut = reaped(meterRegistry, "timeout");
+        this.unauthenticated = reaped(meterRegistry, "unauthenticated");
+        this.closed = reaped(meterRegistry, "closed");
+        Gauge.builder("websocket.sessions", registry, SessionRegistry::sessionCount)
+            .description("Conexiones WebSocket abiertas").register(meterRegistry);
+        Gauge.builder("websocket.users", registry, SessionRegistry::userCount)
+            .description("Usuarios con al menos una sesión autenticada").register(meterRegistry);
+        Gauge.builder("websocket.registry.entries", registry, SessionRegistry::indexEntries)
+            .description("Entradas en los índices del registro de sesiones").register(meterRegistry);
+    }
+
+    private static Counter reaped(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("websocket.sessions.reaped").tag("reason", reason)
+            .description("Sesiones cerradas por el servidor").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.heartbeat.interval-ms:25000}")
+    public void sweep() {
+        int reaped = sweep(System.nanoTime());
+        if (reaped > 0) {
+            System.out.println("🧹 Cerradas " + reaped + " sesiones WebSocket sin respuesta");
+        }
+    }
+
+    int sweep(long now) {
+        int reaped = 0;
+        for (SessionRecord record : registry.sessions()) {
+            if (!record.session().isOpen()) {
+                registry.remove(record.id());
+                closed.increment();
+                reaped++;
+            } else if (record.subscription() == null && now - record.connectedAt() > authTimeoutNanos) {
+                registry.evict(record.id(), CloseStatus.POLICY_VIOLATION);
+                unauthenticated.increment();
+                reaped++;
+            } else if (now - record.lastSeen() > timeoutNanos) {
+                registry.evict(record.id(), CloseStatus.SESSION_NOT_RELIABLE);
+                timedOut.increment();
+                reaped++;
+            } else if (now - record.lastSeen() >= intervalNanos) {
+                // El navegador responde solo con un pong, que llega a handlePongMessage
+                outbound.send(record.id(), new PingMessage(), PING_KEY);
+            }
+        }
+        return reaped;
+    }
+}
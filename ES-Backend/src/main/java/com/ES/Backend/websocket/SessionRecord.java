@@ -0,0 +1,51 @@
+package com.ES.Backend.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Todo lo que el servidor guarda de una conexión WebSocket: la sesión, a quién pertenece una vez
+ * autenticada y cuándo dio señales de vida por última vez (mensaje o pong).
+ */
+public final class SessionRecord {
+
+    private final WebSocketSession session;
+    private final long connectedAt;
+    private volatile long lastSeen;
+    private volatile SessionRegistry.Subscription subscription;
+
+    SessionRecord(WebSocketSession session, long now) {
+        this.session = session;
+        this.connectedAt = now;
+        this.lastSeen = now;
+    }
+
+    public WebSocketSession session() {
+        return session;
+    }
+
+    public String id() {
+        return session.getId();
+    }
+
+    /** Instante de conexión en {@link System#nanoTime()}. */
+    public long connectedAt() {
+        return connectedAt;
+    }
+
+    /** Última actividad en {@link System#nanoTime()}. */
+    public long lastSeen() {
+        return lastSeen;
+    }
+
+    void touch(long now) {
+        lastSeen = now;
+    }
+
+    public SessionRegistry.Subscription subscription() {
+        return subscription;
+    }
+
+    void subscription(SessionRegistry.Subscription subscription) {
+        this.subscription = subscription;
+    }
+}
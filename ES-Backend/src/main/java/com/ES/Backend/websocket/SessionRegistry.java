@@ -0,0 +1,323 @@
+package com.ES.Backend.websocket;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Sesiones WebSocket abiertas, un {@link SessionRecord} por conexión, indexadas además por usuario y por rol
+ * una vez autenticadas. Un envío a un rol o a un usuario recorre solo sus sesiones, y el mensaje se
+ * serializa una vez y se comparte entre todas ellas.
+ */
+@Component
+public class SessionRegistry {
+
+    public record Subscription(String userEmail, String role, Long userId) {
+    }
+
+    /**
+     * Avisa cuando un usuario pasa a tener su primera sesión en este nodo o cierra la última. Los avisos de un
+     * mismo usuario no se solapan y llegan en el orden en que cambian sus sesiones.
+     */
+    public interface PresenceListener {
+        void online(String userEmail, String role);
+
+        void offline(String userEmail, String role);
+    }
+
+    private static final ObjectWriter WRITER = new ObjectMapper().writerFor(WsMessage.class);
+
+    private final OutboundMessageDispatcher outbound;
+    private final int maxSessions;
+    private final int maxSessionsPerUser;
+    private final Map<String, SessionRecord> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byRole = new ConcurrentHashMap<>();
+    // Serializa por usuario el cambio en byUser y el aviso de presencia, para que online y offline
+    // se publiquen en el mismo orden en que cambia el índice
+    private final Object[] presenceLocks = new Object[64];
+    private volatile PresenceListener presenceListener;
+
+    public SessionRegistry(OutboundMessageDispatcher outbound,
+                           @Value("${websocket.max-sessions:10000}") int maxSessions,
+                           @Value("${websocket.max-sessions-per-user:10}") int maxSessionsPerUser) {
+        this.outbound = outbound;
+        this.maxSessions = maxSessions;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        for (int i = 0; i < presenceLocks.length; i++) {
+            presenceLocks[i] = new Object();
+        }
+    }
+
+    public void setPresenceListener(PresenceListener presenceListener) {
+        this.presenceListener = presenceListener;
+    }
+
+    /**
+     * Da de alta una conexión nueva y su cola de salida. Devuelve null si ya hay websocket.max-sessions abiertas.
+     */
+    public SessionRecord register(WebSocketSession session) {
+        if (sessions.size() >= maxSessions) {
+            return null;
+        }
+        SessionRecord record = new SessionRecord(session, System.nanoTime());
+        sessions.put(session.getId(), record);
+        outbound.register(session);
+        return record;
+    }
+
+    /**
+     * Quita la conexión de todos los índices. Se puede llamar más de una vez (cierre normal y reaper).
+     */
+    public Subscription remove(String sessionId) {
+        Subscription subscription = unsubscribe(sessionId);
+        sessions.remove(sessionId);
+        outbound.unregister(sessionId);
+        return subscription;
+    }
+
+    /** Registra actividad de la sesión (mensaje recibido o pong). */
+    public void touch(String sessionId) {
+        SessionRecord record = sessions.get(sessionId);
+        if (record != null) {
+            record.touch(System.nanoTime());
+        }
+    }
+
+    /**
+     * Asocia la sesión al usuario y su rol. Si la sesión ya estaba autenticada con otro usuario, lo sustituye.
+     * Si el usuario supera websocket.max-sessions-per-user, se cierra su sesión más antigua.
+     */
+    public void subscribe(String sessionId, String userEmail, String role, Long userId) {
+        SessionRecord record = sessions.get(sessionId);
+        if (record == null) {
+            return;
+        }
+        unsubscribe(sessionId);
+        record.subscription(new Subscription(userEmail, role, userId));
+        synchronized (presenceLock(userEmail)) {
+            boolean firstSession = add(byUser, userEmail, sessionId);
+            if (role != null) {
+                add(byRole, role, sessionId);
+            }
+            PresenceListener listener = presenceListener;
+            if (firstSession && listener != null) {
+                listener.online(userEmail, role);
+            }
+        }
+        evictOldest(userEmail);
+    }
+
+    public Subscription unsubscribe(String sessionId) {
+        SessionRecord record = sessions.get(sessionId);
+        Subscription subscription = record != null ? record.subscription() : null;
+        if (subscription != null) {
+            record.subscription(null);
+            synchronized (presenceLock(subscription.userEmail())) {
+                boolean lastSession = remove(byUser, subscription.userEmail(), sessionId);
+                if (subscription.role() != null) {
+                    remove(byRole, subscription.role(), sessionId);
+                }
+                PresenceListener listener = presenceListener;
+                if (lastSession && listener != null) {
+                    listener.offline(subscription.userEmail(), subscription.role());
+                }
+            }
+        }
+        return subscription;
+    }
+
+    private Object presenceLock(String userEmail) {
+        return presenceLocks[Math.floorMod(userEmail.hashCode(), presenceLocks.length)];
+    }
+
+    private void evictOldest(String userEmail) {
+        Set<String> sessionIds = byUser.get(userEmail);
+        if (sessionIds == null || sessionIds.size() <= maxSessionsPerUser) {
+            return;
+        }
+        SessionRecord oldest = null;
+        for (String sessionId : sessionIds) {
+            SessionRecord record = sessions.get(sessionId);
+            if (record != null && (oldest == null || record.connectedAt() < oldest.connectedAt())) {
+                oldest = record;
+            }
+        }
+        if (oldest != null) {
+            System.out.println("🧹 " + userEmail + " supera " + maxSessionsPerUser + " sesiones; se cierra la más antigua: " + oldest.id());
+            evict(oldest.id(), CloseStatus.POLICY_VIOLATION);
+        }
+    }
+
+    /**
+     * Cierra la conexión sin esperar al cliente (el cierre va por el pool de envío) y la quita del registro.
+     */
+    public Subscription evict(String sessionId, CloseStatus status) {
+        outbound.disconnect(sessionId, status);
+        return remove(sessionId);
+    }
+
+    public Subscription subscription(String sessionId) {
+        SessionRecord record = sessions.get(sessionId);
+        return record != null ? record.subscription() : null;
+    }
+
+    public Collection<SessionRecord> sessions() {
+        return sessions.values();
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    public int sessionCount(String userEmail) {
+        Set<String> sessionIds = byUser.get(userEmail);
+        return sessionIds != null ? sessionIds.size() : 0;
+    }
+
+    public int userCount() {
+        return byUser.size();
+    }
+
+    /** Entradas en todos los índices: sesiones más sus referencias por usuario y por rol. */
+    public int indexEntries() {
+        int entries = sessions.size();
+        for (Set<String> sessionIds : byUser.values()) {
+            entries += sessionIds.size();
+        }
+        for (Set<String> sessionIds : byRole.values()) {
+            entries += sessionIds.size();
+        }
+        return entries;
+    }
+
+    public Long userId(String userEmail) {
+        Subscription subscription = anySubscription(userEmail);
+        return subscription != null ? subscription.userId() : null;
+    }
+
+    /**
+     * Vuelve a avisar como conectados a todos los usuarios con sesión en este nodo, p. ej. cuando otro nodo
+     * borró su presencia creyéndolo caído. Devuelve cuántos usuarios se republicaron.
+     */
+    public int republishPresence() {
+        PresenceListener listener = presenceListener;
+        if (listener == null) {
+            return 0;
+        }
+        int users = 0;
+        for (String userEmail : byUser.keySet()) {
+            synchronized (presenceLock(userEmail)) {
+                Subscription subscription = anySubscription(userEmail);
+                if (subscription != null) {
+                    listener.online(userEmail, subscription.role());
+                    users++;
+                }
+            }
+        }
+        return users;
+    }
+
+    private Subscription anySubscription(String userEmail) {
+        Set<String> sessionIds = byUser.get(userEmail);
+        if (sessionIds == null) {
+            return null;
+        }
+        for (String sessionId : sessionIds) {
+            Subscription subscription = subscription(sessionId);
+            if (subscription != null) {
+                return subscription;
+            }
+        }
+        return null;
+    }
+
+    public void sendToSession(String sessionId, WsMessage message) {
+        outbound.send(sessionId, serialize(message));
+    }
+
+    public int sendToUser(String userEmail, WsMessage message) {
+        return sendToUser(userEmail, message, null);
+    }
+
+    /**
+     * Envía a todas las sesiones del usuario. Devuelve cuántas sesiones lo recibieron en su cola.
+     */
+    public int sendToUser(String userEmail, WsMessage message, String coalesceKey) {
+        Set<String> sessionIds = byUser.get(userEmail);
+        return sessionIds != null ? fanOut(sessionIds, serialize(message), coalesceKey) : 0;
+    }
+
+    /**
+     * Igual que {@link #sendToUser(String, WsMessage, String)} con el mensaje ya serializado
+     * (p. ej. recibido de otro nodo).
+     */
+    public int sendToUser(String userEmail, TextMessage payload, String coalesceKey) {
+        Set<String> sessionIds = byUser.get(userEmail);
+        return sessionIds != null ? fanOut(sessionIds, payload, coalesceKey) : 0;
+    }
+
+    public int sendToRole(String role, WsMessage message) {
+        Set<String> sessionIds = byRole.get(role);
+        return sessionIds != null ? fanOut(sessionIds, serialize(message), null) : 0;
+    }
+
+    public int sendToRole(String role, TextMessage payload) {
+        Set<String> sessionIds = byRole.get(role);
+        return sessionIds != null ? fanOut(sessionIds, payload, null) : 0;
+    }
+
+    private int fanOut(Set<String> sessionIds, TextMessage payload, String coalesceKey) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        for (String sessionId : sessionIds) {
+            outbound.send(sessionId, payload, coalesceKey);
+            count++;
+        }
+        return count;
+    }
+
+    public static TextMessage serialize(WsMessage message) {
+        try {
+            return new TextMessage(WRITER.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el mensaje WebSocket", e);
+        }
+    }
+
+    /** Devuelve true si es la primera sesión de la clave. */
+    private static boolean add(Map<String, Set<String>> index, String key, String sessionId) {
+        boolean[] created = new boolean[1];
+        index.compute(key, (k, sessionIds) -> {
+            created[0] = sessionIds == null;
+            Set<String> result = sessionIds != null ? sessionIds : ConcurrentHashMap.newKeySet();
+            result.add(sessionId);
+            return result;
+        });
+        return created[0];
+    }
+
+    /** Devuelve true si era la última sesión de la clave. */
+    private static boolean remove(Map<String, Set<String>> index, String key, String sessionId) {
+        boolean[] emptied = new boolean[1];
+        index.computeIfPresent(key, (k, sessionIds) -> {
+            sessionIds.remove(sessionId);
+            emptied[0] = sessionIds.isEmpty();
+            return emptied[0] ? null : sessionIds;
+        });
+        return emptied[0];
+    }
+}
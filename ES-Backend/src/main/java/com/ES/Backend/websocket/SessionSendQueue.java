@@ -0,0 +1,126 @@
+package com.ES.Backend.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Cola de salida acotada de una sesión WebSocket. Los hilos de negocio solo encolan; un único
+ * drenado a la vez (marcado con {@code draining}) envía en orden, así nunca hay dos envíos simultáneos en la sesión.
+ */
+final class SessionSendQueue {
+
+    enum Offer {
+        QUEUED,
+        COALESCED,
+        DROPPED_OLDEST,
+        OVERFLOW,
+        CLOSED
+    }
+
+    static final class Pending {
+        private final String key;
+        private WebSocketMessage<?> message;
+
+        Pending(WebSocketMessage<?> message, String key) {
+            this.message = message;
+            this.key = key;
+        }
+
+        WebSocketMessage<?> message() {
+            return message;
+        }
+    }
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final boolean batching;
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+
+    SessionSendQueue(WebSocketSession session, int capacity, OverflowPolicy policy, boolean batching) {
+        this.session = session;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.batching = batching;
+    }
+
+    WebSocketSession session() {
+        return session;
+    }
+
+    /** El cliente negoció el subprotocolo por lotes: varios mensajes pueden ir en un único frame JSON array. */
+    boolean batching() {
+        return batching;
+    }
+
+    /**
+     * Encola un mensaje (el mismo TextMessage puede estar en muchas colas) aplicando la política de desbordamiento. {@code key} identifica mensajes
+     * sustituibles entre sí para COALESCE; puede ser null.
+     */
+    synchronized Offer offer(WebSocketMessage<?> message, String key) {
+        if (closed) {
+            return Offer.CLOSED;
+        }
+        if (policy == OverflowPolicy.COALESCE && key != null) {
+            // Se sustituye en su posición para no adelantar ni retrasar el aviso
+            for (Pending pending : queue) {
+                if (key.equals(pending.key)) {
+                    pending.message = message;
+                    return Offer.COALESCED;
+                }
+            }
+        }
+        if (queue.size() < capacity) {
+            queue.addLast(new Pending(message, key));
+            return Offer.QUEUED;
+        }
+        if (policy == OverflowPolicy.DISCONNECT) {
+            closed = true;
+            queue.clear();
+            return Offer.OVERFLOW;
+        }
+        queue.pollFirst();
+        queue.addLast(new Pending(message, key));
+        return Offer.DROPPED_OLDEST;
+    }
+
+    /**
+     * Devuelve true si quien llama debe lanzar el drenado (no había uno en curso y hay mensajes).
+     */
+    synchronized boolean startDrain() {
+        if (draining || queue.isEmpty() || closed) {
+            return false;
+        }
+        draining = true;
+        return true;
+    }
+
+    synchronized Pending poll() {
+        return closed ? null : queue.pollFirst();
+    }
+
+    /**
+     * Al acabar una ráfaga: true si quedan mensajes y el drenado debe seguir; si no, lo da por terminado.
+     */
+    synchronized boolean continueDrain() {
+        if (queue.isEmpty() || closed) {
+            draining = false;
+            return false;
+        }
+        return true;
+    }
+
+    synchronized int backlog() {
+        return queue.size();
+    }
+
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+}
@@ -0,0 +1,86 @@
+package com.ES.Backend.websocket;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ES.Backend.entity.User;
+import com.ES.Backend.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Identidad (email, rol, id) de los usuarios que abren conexiones WebSocket, con TTL corto.
+ * Tras un despliegue o un corte, miles de clientes se reconectan a la vez y cada uno solo necesita
+ * esto de Postgres; la caché lo reduce a una consulta por usuario y ventana.
+ * La aplicación no borra usuarios ni cambia roles, así que no hay invalidación: un cambio hecho directamente
+ * en la base de datos tarda como mucho {@code websocket.identity-cache.ttl} en verse en las conexiones nuevas.
+ */
+@Component
+public class UserIdentityCache {
+
+    public record Identity(String userEmail, String role, Long userId) {
+    }
+
+    private record Entry(Identity identity, long expiresAt) {
+    }
+
+    private final UserRepository userRepository;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserIdentityCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                             @Value("${websocket.identity-cache.ttl:60s}") Duration ttl,
+                             @Value("${websocket.identity-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("websocket.identity.cache.requests").tag("result", "hit")
+            .description("Identidades servidas desde la caché").register(meterRegistry);
+        this.misses = Counter.builder("websocket.identity.cache.requests").tag("result", "miss")
+            .description("Identidades leídas de la base de datos").register(meterRegistry);
+        Gauge.builder("websocket.identity.cache.size", this, UserIdentityCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Devuelve la identidad del usuario o null si no existe.
+     */
+    public Identity get(String userEmail) {
+        synchronized (this) {
+            Entry entry = entries.get(userEmail);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.identity();
+            }
+        }
+        // La consulta va fuera del lock para no serializar usuarios distintos
+        misses.increment();
+        User user = userRepository.findByEmail(userEmail).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        Identity identity = new Identity(user.getEmail(), user.getRole(), user.getId());
+        synchronized (this) {
+            entries.put(userEmail, new Entry(identity, System.nanoTime() + ttlNanos));
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return identity;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
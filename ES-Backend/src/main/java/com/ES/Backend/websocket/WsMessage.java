@@ -0,0 +1,75 @@
+package com.ES.Backend.websocket;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * Mensajes que el servidor envía por WebSocket. Se serializan una sola vez con Jackson
+ * (el campo {@code type} sale del nombre del tipo) y el mismo TextMessage se reparte a todas las sesiones.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+public sealed interface WsMessage {
+
+    static String now() {
+        return Instant.now().toString();
+    }
+
+    @JsonTypeName("CONNECTION")
+    record Connection(String message, String sessionId) implements WsMessage {
+    }
+
+    /**
+     * seq/roleSeq: última secuencia de los flujos del usuario y de su rol. resync: el cursor enviado en AUTH
+     * no sirve (no había o no corresponde) y el cliente debe recalcular su estado en lugar de esperar un REPLAY.
+     */
+    @JsonTypeName("AUTH_SUCCESS")
+    record AuthSuccess(String message, String userEmail, String userRole, Long userId,
+                       long seq, Long roleSeq, boolean resync) implements WsMessage {
+    }
+
+    /** Mensajes perdidos de un flujo (USER o ROLE) hasta {@code seq}, en un único frame. */
+    @JsonTypeName("REPLAY")
+    record Replay(String stream, long seq, boolean truncated, @JsonRawValue String messages) implements WsMessage {
+    }
+
+    @JsonTypeName("ERROR")
+    record Error(String message) implements WsMessage {
+    }
+
+    @JsonTypeName("MESSAGE_RECEIVED")
+    record MessageReceived(String message) implements WsMessage {
+    }
+
+    @JsonTypeName("ECHO")
+    record Echo(String message) implements WsMessage {
+    }
+
+    /** target: USER o ADMIN */
+    @JsonTypeName("NOTIFICATION")
+    record Notification(String target, String title, String message, String timestamp) implements WsMessage {
+        public static Notification toUser(String title, String message) {
+            return new Notification("USER", title, message, now());
+        }
+
+        public static Notification toAdmin(String title, String message) {
+            return new Notification("ADMIN", title, message, now());
+        }
+    }
+
+    @JsonTypeName("SIGNATURE_REQUEST")
+    record SignatureRequest(Long requestId, String documentPath, String documentName,
+                            int page, int posX, int posY, String timestamp) implements WsMessage {
+    }
+
+    @JsonTypeName("SIGNATURE_REQUEST_UPDATE")
+    record SignatureRequestUpdate(Long requestId, String status, String message, String timestamp) implements WsMessage {
+    }
+
+    @JsonTypeName("SIGNING_JOB_UPDATE")
+    record SigningJobUpdate(Long jobId, String jobType, String status, String documentId, Long requestId,
+                            String message, String timestamp) implements WsMessage {
+    }
+}
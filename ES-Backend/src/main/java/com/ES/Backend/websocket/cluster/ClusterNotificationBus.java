@@ -0,0 +1,203 @@
+package com.ES.Backend.websocket.cluster;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import com.ES.Backend.websocket.SessionRegistry;
+import com.ES.Backend.websocket.WsMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reparto de notificaciones WebSocket entre réplicas. El mensaje se entrega a las sesiones locales y
+ * se reenvía solo a los nodos que, según el {@link PresenceDirectory}, tienen sesiones del usuario o rol.
+ * Cada reenvío lleva un id único; un nodo que recibe el mismo id dos veces lo entrega una sola vez.
+ */
+@Component
+public class ClusterNotificationBus {
+
+    static final String SCOPE_USER = "USER";
+    static final String SCOPE_ROLE = "ROLE";
+
+    /** Lo que viaja entre nodos: el mensaje ya serializado y a quién va dirigido. */
+    record Envelope(String id, String origin, String scope, String target, String key, String payload) {
+    }
+
+    private final SessionRegistry registry;
+    private final ClusterTransport transport;
+    private final PresenceDirectory presence;
+    private final String nodeId;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Boolean> seen;
+
+    private final Counter forwarded;
+    private final Counter received;
+    private final Counter duplicates;
+    private final Counter errors;
+
+    public ClusterNotificationBus(SessionRegistry registry, ClusterTransport transport, PresenceDirectory presence,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${websocket.cluster.node-id:${signing.jobs.node-id:}}") String nodeId,
+                                  @Value("${websocket.cluster.dedup-size:10000}") int dedupSize) {
+        this.registry = registry;
+        this.transport = transport;
+        this.presence = presence;
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.seen = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > dedupSize;
+            }
+        });
+
+        this.forwarded = Counter.builder("websocket.cluster.forwarded")
+            .description("Mensajes reenviados a otros nodos").register(meterRegistry);
+        this.received = Counter.builder("websocket.cluster.received")
+            .description("Mensajes recibidos de otros nodos").register(meterRegistry);
+        this.duplicates = Counter.builder("websocket.cluster.duplicates")
+            .description("Mensajes de otros nodos descartados por repetidos").register(meterRegistry);
+        this.errors = Counter.builder("websocket.cluster.errors")
+            .description("Reenvíos entre nodos fallidos").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        presence.register(nodeId);
+        registry.setPresenceListener(new SessionRegistry.PresenceListener() {
+            @Override
+            public void online(String userEmail, String role) {
+                try {
+                    presence.online(nodeId, userEmail, role);
+                } catch (Exception e) {
+                    System.err.println("❌ Error registrando la presencia de " + userEmail + ": " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void offline(String userEmail, String role) {
+                try {
+                    presence.offline(nodeId, userEmail);
+                } catch (Exception e) {
+                    System.err.println("❌ Error eliminando la presencia de " + userEmail + ": " + e.getMessage());
+                }
+            }
+        });
+        transport.start(nodeId, this::onMessage);
+        System.out.println("🌐 Nodo WebSocket " + nodeId + " unido al clúster");
+    }
+
+    @PreDestroy
+    public void stop() {
+        registry.setPresenceListener(null);
+        transport.stop();
+        try {
+            presence.unregister(nodeId);
+        } catch (Exception e) {
+            System.err.println("❌ Error dando de baja el nodo " + nodeId + ": " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.cluster.heartbeat-ms:10000}")
+    public void heartbeat() {
+        try {
+            if (presence.heartbeat(nodeId)) {
+                int users = registry.republishPresence();
+                System.out.println("⚠️ El nodo " + nodeId + " se había dado por caído; republicada la presencia de " + users + " usuarios");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error renovando el heartbeat del nodo " + nodeId + ": " + e.getMessage());
+        }
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Entrega a las sesiones locales del usuario y reenvía a los demás nodos donde tiene sesiones.
+     * Devuelve cuántas sesiones locales lo recibieron.
+     */
+    public int publishToUser(String userEmail, WsMessage message, String coalesceKey) {
+        return publishToUser(userEmail, SessionRegistry.serialize(message), coalesceKey);
+    }
+
+    public int publishToUser(String userEmail, TextMessage payload, String coalesceKey) {
+        int local = registry.sendToUser(userEmail, payload, coalesceKey);
+        forward(SCOPE_USER, userEmail, coalesceKey, payload, presence.nodesForUser(userEmail));
+        return local;
+    }
+
+    public int publishToRole(String role, WsMessage message) {
+        return publishToRole(role, SessionRegistry.serialize(message));
+    }
+
+    public int publishToRole(String role, TextMessage payload) {
+        int local = registry.sendToRole(role, payload);
+        forward(SCOPE_ROLE, role, null, payload, presence.nodesForRole(role));
+        return local;
+    }
+
+    private void forward(String scope, String target, String key, TextMessage payload, Set<String> nodes) {
+        nodes.remove(nodeId);
+        if (nodes.isEmpty()) {
+            return;
+        }
+        String envelope;
+        try {
+            envelope = mapper.writeValueAsString(
+                new Envelope(UUID.randomUUID().toString(), nodeId, scope, target, key, payload.getPayload()));
+        } catch (Exception e) {
+            errors.increment();
+            System.err.println("❌ No se pudo preparar el mensaje para el clúster: " + e.getMessage());
+            return;
+        }
+        for (String node : nodes) {
+            try {
+                transport.send(node, envelope);
+                forwarded.increment();
+            } catch (Exception e) {
+                errors.increment();
+                System.err.println("❌ Error reenviando al nodo " + node + ": " + e.getMessage());
+            }
+        }
+    }
+
+    void onMessage(String data) {
+        Envelope envelope;
+        try {
+            envelope = mapper.readValue(data, Envelope.class);
+        } catch (Exception e) {
+            errors.increment();
+            System.err.println("❌ Mensaje de clúster no válido: " + e.getMessage());
+            return;
+        }
+        if (nodeId.equals(envelope.origin())) {
+            return;
+        }
+        if (seen.putIfAbsent(envelope.id(), Boolean.TRUE) != null) {
+            duplicates.increment();
+            return;
+        }
+        received.increment();
+        TextMessage payload = new TextMessage(envelope.payload());
+        if (SCOPE_ROLE.equals(envelope.scope())) {
+            registry.sendToRole(envelope.target(), payload);
+        } else {
+            registry.sendToUser(envelope.target(), payload, envelope.key());
+        }
+    }
+}
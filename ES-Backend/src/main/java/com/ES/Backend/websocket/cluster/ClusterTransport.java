@@ -0,0 +1,16 @@
+package com.ES.Backend.websocket.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal entre nodos del backend. Cada nodo escucha en su propio canal y los demás le envían
+ * solo lo que le afecta; la entrega es "al menos una vez", los duplicados los descarta ClusterNotificationBus.
+ */
+public interface ClusterTransport {
+
+    void start(String nodeId, Consumer<String> onMessage);
+
+    void send(String targetNodeId, String payload);
+
+    void stop();
+}
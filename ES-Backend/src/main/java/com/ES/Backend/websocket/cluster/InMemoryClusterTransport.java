@@ -0,0 +1,48 @@
+package com.ES.Backend.websocket.cluster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Transporte dentro de la JVM: sirve para un único nodo (modo none) y para probar varios nodos
+ * compartiendo el mismo {@link Hub}.
+ */
+public class InMemoryClusterTransport implements ClusterTransport {
+
+    public static class Hub {
+        private final Map<String, Consumer<String>> nodes = new ConcurrentHashMap<>();
+
+        protected void deliver(String targetNodeId, String payload) {
+            Consumer<String> node = nodes.get(targetNodeId);
+            if (node != null) {
+                node.accept(payload);
+            }
+        }
+    }
+
+    private final Hub hub;
+    private String nodeId;
+
+    public InMemoryClusterTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void start(String nodeId, Consumer<String> onMessage) {
+        this.nodeId = nodeId;
+        hub.nodes.put(nodeId, onMessage);
+    }
+
+    @Override
+    public void send(String targetNodeId, String payload) {
+        hub.deliver(targetNodeId, payload);
+    }
+
+    @Override
+    public void stop() {
+        if (nodeId != null) {
+            hub.nodes.remove(nodeId);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ES.Backend.websocket.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Presencia en memoria: para un único nodo (modo none) o para varios nodos de la misma JVM en pruebas.
+ */
+public class InMemoryPresenceDirectory implements PresenceDirectory {
+
+    private record Presence(String nodeId, String userEmail, String role) {
+    }
+
+    // nodeId + "|" + userEmail -> presencia
+    private final Map<String, Presence> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(String nodeId) {
+        unregister(nodeId);
+    }
+
+    @Override
+    public boolean heartbeat(String nodeId) {
+        return false;
+    }
+
+    @Override
+    public void unregister(String nodeId) {
+        entries.values().removeIf(p -> p.nodeId().equals(nodeId));
+    }
+
+    @Override
+    public void online(String nodeId, String userEmail, String role) {
+        entries.put(nodeId + "|" + userEmail, new Presence(nodeId, userEmail, role));
+    }
+
+    @Override
+    public void offline(String nodeId, String userEmail) {
+        entries.remove(nodeId + "|" + userEmail);
+    }
+
+    @Override
+    public Set<String> nodesForUser(String userEmail) {
+        return entries.values().stream()
+            .filter(p -> p.userEmail().equals(userEmail))
+            .map(Presence::nodeId)
+            .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Set<String> nodesForRole(String role) {
+        return entries.values().stream()
+            .filter(p -> role.equals(p.role()))
+            .map(Presence::nodeId)
+            .collect(Collectors.toSet());
+    }
+}
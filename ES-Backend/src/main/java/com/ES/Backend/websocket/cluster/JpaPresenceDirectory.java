@@ -0,0 +1,75 @@
+package com.ES.Backend.websocket.cluster;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.ES.Backend.repository.ClusterNodeRepository;
+import com.ES.Backend.repository.SessionPresenceRepository;
+
+/**
+ * Presencia compartida en Postgres (ws_cluster_node, ws_session_presence). Los nodos cuyo heartbeat
+ * tiene más de {@code nodeTimeout} no cuentan; el primero que lo detecta borra sus filas. Si el nodo seguía
+ * vivo (p. ej. tras una pausa larga), su siguiente heartbeat lo detecta y vuelve a publicar su presencia.
+ */
+public class JpaPresenceDirectory implements PresenceDirectory {
+
+    private final ClusterNodeRepository nodeRepository;
+    private final SessionPresenceRepository presenceRepository;
+    private final Duration nodeTimeout;
+
+    public JpaPresenceDirectory(ClusterNodeRepository nodeRepository, SessionPresenceRepository presenceRepository,
+                                Duration nodeTimeout) {
+        this.nodeRepository = nodeRepository;
+        this.presenceRepository = presenceRepository;
+        this.nodeTimeout = nodeTimeout;
+    }
+
+    @Override
+    public void register(String nodeId) {
+        presenceRepository.deleteByNode(nodeId);
+        nodeRepository.heartbeat(nodeId, LocalDateTime.now());
+    }
+
+    @Override
+    public boolean heartbeat(String nodeId) {
+        // register() ya insertó la fila; si vuelve a insertarse es que otro nodo la borró por heartbeat vencido
+        boolean recreated = nodeRepository.heartbeat(nodeId, LocalDateTime.now());
+        int removed = nodeRepository.deleteStale(cutoff());
+        if (removed > 0) {
+            System.out.println("🧹 Eliminada la presencia de " + removed + " usuarios de nodos caídos");
+        }
+        return recreated;
+    }
+
+    @Override
+    public void unregister(String nodeId) {
+        presenceRepository.deleteByNode(nodeId);
+        nodeRepository.deleteById(nodeId);
+    }
+
+    @Override
+    public void online(String nodeId, String userEmail, String role) {
+        presenceRepository.upsert(nodeId, userEmail, role, LocalDateTime.now());
+    }
+
+    @Override
+    public void offline(String nodeId, String userEmail) {
+        presenceRepository.deleteByNodeAndUser(nodeId, userEmail);
+    }
+
+    @Override
+    public Set<String> nodesForUser(String userEmail) {
+        return new HashSet<>(presenceRepository.findLiveNodesByUser(userEmail, cutoff()));
+    }
+
+    @Override
+    public Set<String> nodesForRole(String role) {
+        return new HashSet<>(presenceRepository.findLiveNodesByRole(role, cutoff()));
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minus(nodeTimeout);
+    }
+}
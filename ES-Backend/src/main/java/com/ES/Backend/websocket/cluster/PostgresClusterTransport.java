@@ -0,0 +1,135 @@
+package com.ES.Backend.websocket.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Transporte con LISTEN/NOTIFY de Postgres. Cada nodo escucha en un canal propio derivado de su id,
+ * así un NOTIFY solo despierta al nodo destinatario. La escucha ocupa una conexión del pool de forma
+ * permanente en un hilo dedicado que se reconecta si la conexión se pierde.
+ */
+public class PostgresClusterTransport implements ClusterTransport {
+    // Postgres admite hasta 8000 bytes por NOTIFY
+    static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private final DataSource dataSource;
+    private final int pollMillis;
+    private final long reconnectDelayMillis;
+    private final CountDownLatch listening = new CountDownLatch(1);
+    private volatile boolean running;
+    private Thread listener;
+    private Consumer<String> onMessage;
+    private String channel;
+
+    public PostgresClusterTransport(DataSource dataSource, int pollMillis, long reconnectDelayMillis) {
+        this.dataSource = dataSource;
+        this.pollMillis = pollMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    static String channel(String nodeId) {
+        return "ws_node_" + UUID.nameUUIDFromBytes(nodeId.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+    }
+
+    @Override
+    public void start(String nodeId, Consumer<String> onMessage) {
+        this.onMessage = onMessage;
+        this.channel = channel(nodeId);
+        this.running = true;
+        this.listener = new Thread(this::listen, "ws-cluster-listener");
+        listener.setDaemon(true);
+        listener.start();
+        try {
+            // Lo que se publique antes del LISTEN se perdería
+            if (!listening.await(10, TimeUnit.SECONDS)) {
+                System.err.println("⚠️ El nodo aún no escucha en " + channel + "; se seguirá intentando en segundo plano");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                System.out.println("📡 Escuchando notificaciones del clúster en " + channel);
+                listening.countDown();
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollMillis);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        deliver(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    System.err.println("❌ Conexión de escucha del clúster perdida: " + e.getMessage());
+                    sleep(reconnectDelayMillis);
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        try {
+            onMessage.accept(payload);
+        } catch (Exception e) {
+            System.err.println("❌ Error procesando notificación del clúster: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void send(String targetNodeId, String payload) {
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Mensaje de clúster demasiado grande para NOTIFY");
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, channel(targetNodeId));
+            statement.setString(2, payload);
+            statement.execute();
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo notificar al nodo " + targetNodeId, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            try {
+                listener.join(pollMillis + 1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ES.Backend.websocket.cluster;
+
+import java.util.Set;
+
+/**
+ * Qué nodos tienen sesiones de cada usuario y de cada rol, para publicar solo a esos nodos.
+ */
+public interface PresenceDirectory {
+
+    /** Da de alta el nodo y borra lo que pudiera quedar de una ejecución anterior con el mismo id. */
+    void register(String nodeId);
+
+    /**
+     * Renueva el heartbeat del nodo. Devuelve true si otro nodo lo había dado por caído y borrado su presencia,
+     * que entonces hay que volver a publicar.
+     */
+    boolean heartbeat(String nodeId);
+
+    void unregister(String nodeId);
+
+    void online(String nodeId, String userEmail, String role);
+
+    void offline(String nodeId, String userEmail);
+
+    Set<String> nodesForUser(String userEmail);
+
+    Set<String> nodesForRole(String role);
+}
@@ -0,0 +1,26 @@
+package com.ES.Backend;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta las sentencias SQL que prepara Hibernate en el hilo actual. Las tareas programadas del contexto
+ * (cola de firma, bandeja de correo, barridos) usan sus propios hilos y no se mezclan con lo que mide el test.
+ * Se registra con spring.jpa.properties.hibernate.session_factory.statement_inspector (perfil dbtest).
+ */
+public class StatementCounter implements StatementInspector {
+    private static final ThreadLocal<Integer> COUNT = ThreadLocal.withInitial(() -> 0);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.set(COUNT.get() + 1);
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+}
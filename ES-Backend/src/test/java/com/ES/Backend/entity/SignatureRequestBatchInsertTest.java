@@ -0,0 +1,67 @@
+package com.ES.Backend.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ES.Backend.StatementCounter;
+import com.ES.Backend.service.SignatureRequestService;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Una solicitud con 200 firmantes se guarda con unas pocas sentencias: ids reservados de 50 en 50 por
+ * secuencia y los INSERT de firmantes agrupados en lotes. Pasa por createSignatureRequest con la
+ * configuración de application.properties (batch_size, order_inserts, reWriteBatchedInserts) contra la
+ * base de DB_URL; los datos se descartan con el rollback.
+ */
+@SpringBootTest
+@ActiveProfiles("dbtest")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class SignatureRequestBatchInsertTest {
+    private static final int SIGNERS = 200;
+    // Consulta de firmantes, 1 + 4 reservas de ids, 1 INSERT de la solicitud y 4 lotes, con margen para la primera reserva
+    private static final int MAX_STATEMENTS = 15;
+
+    @Autowired
+    private SignatureRequestService signatureRequestService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void signersArePersistedInBatches() {
+        SignatureRequest request = new SignatureRequest();
+        request.setDocumentPath("uploads/documents/test/batch.pdf");
+        List<SignatureRequestUser> users = new ArrayList<>();
+        for (int i = 0; i < SIGNERS; i++) {
+            SignatureRequestUser user = new SignatureRequestUser();
+            // Usuarios inexistentes: solo se mide el guardado, sin correos ni avisos a los firmantes
+            user.setUserId(-(long) i - 1);
+            user.setPage(1);
+            users.add(user);
+        }
+        request.setUsers(users);
+
+        StatementCounter.reset();
+        SignatureRequest saved = signatureRequestService.createSignatureRequest(request);
+        entityManager.flush();
+        int statements = StatementCounter.count();
+
+        assertTrue(statements <= MAX_STATEMENTS, "Sentencias preparadas: " + statements);
+        assertEquals((long) SIGNERS, entityManager.createQuery(
+                "SELECT COUNT(u) FROM SignatureRequestUser u WHERE u.signatureRequest.id = :id", Long.class)
+            .setParameter("id", saved.getId())
+            .getSingleResult());
+    }
+}
@@ -0,0 +1,237 @@
+package com.ES.Backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.ES.Backend.entity.OutboxEmail;
+import com.ES.Backend.repository.OutboxEmailRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Despachador de la bandeja de salida contra un servidor SMTP mínimo dentro del propio test;
+ * el repositorio se sustituye por un mapa en memoria.
+ */
+class EmailOutboxDispatcherTest {
+    private static final String NODE = "test-node";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Map<Long, OutboxEmail> table = new LinkedHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FakeSmtpServer smtp;
+    private EmailOutboxService outbox;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new FakeSmtpServer();
+        outbox = new EmailOutboxService(inMemoryRepository(), MAX_ATTEMPTS, 60,
+            Duration.ofSeconds(30), Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        smtp.close();
+    }
+
+    @Test
+    void sendsBatchOverSingleConnection() {
+        for (int i = 0; i < 3; i++) {
+            outbox.enqueue("user" + i + "@example.com", "Asunto " + i, "<p>Hola " + i + "</p>");
+        }
+
+        dispatcher(smtp.port()).poll();
+
+        assertEquals(1, smtp.connections.get());
+        assertEquals(3, smtp.messages.size());
+        assertTrue(table.values().stream().allMatch(e -> OutboxEmail.STATUS_SENT.equals(e.getStatus())));
+        assertTrue(table.values().stream().allMatch(e -> e.getSentAt() != null && e.getLockedBy() == null));
+        assertEquals(3.0, meterRegistry.counter("mail.outbox.sent").count());
+        assertEquals(0.0, meterRegistry.get("mail.outbox.queued").gauge().value());
+    }
+
+    @Test
+    void schedulesRetryWithBackoffWhenSmtpIsDown() throws IOException {
+        OutboxEmail email = outbox.enqueue("user@example.com", "Asunto", "<p>Hola</p>");
+        int port = smtp.port();
+        smtp.close();
+
+        dispatcher(port).poll();
+
+        assertEquals(OutboxEmail.STATUS_PENDING, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertNotNull(email.getLastError());
+        assertNull(email.getLockedBy());
+        assertTrue(email.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(20)));
+        assertEquals(1.0, meterRegistry.counter("mail.outbox.failures", "result", "retry").count());
+        assertEquals(1.0, meterRegistry.get("mail.outbox.queued").gauge().value());
+    }
+
+    @Test
+    void marksFailedAfterMaxAttempts() throws IOException {
+        OutboxEmail email = outbox.enqueue("user@example.com", "Asunto", "<p>Hola</p>");
+        email.setAttempts(MAX_ATTEMPTS - 1);
+        int port = smtp.port();
+        smtp.close();
+
+        dispatcher(port).poll();
+
+        assertEquals(OutboxEmail.STATUS_FAILED, email.getStatus());
+        assertEquals(MAX_ATTEMPTS, email.getAttempts());
+        assertEquals(1.0, meterRegistry.counter("mail.outbox.failures", "result", "dead").count());
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToMax() {
+        assertEquals(Duration.ofSeconds(30), outbox.backoff(1));
+        assertEquals(Duration.ofSeconds(60), outbox.backoff(2));
+        assertEquals(Duration.ofSeconds(120), outbox.backoff(3));
+        assertEquals(Duration.ofMinutes(10), outbox.backoff(12));
+    }
+
+    private EmailOutboxDispatcher dispatcher(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.from", "no-reply@example.com");
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+        return new EmailOutboxDispatcher(outbox, mailSender, meterRegistry, 50, NODE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private OutboxEmailRepository inMemoryRepository() {
+        OutboxEmailRepository repository = mock(OutboxEmailRepository.class);
+        when(repository.save(any(OutboxEmail.class))).thenAnswer(inv -> {
+            OutboxEmail email = inv.getArgument(0);
+            if (email.getId() == null) {
+                email.setId(ids.incrementAndGet());
+            }
+            table.put(email.getId(), email);
+            return email;
+        });
+        when(repository.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<OutboxEmail> saved = new ArrayList<>();
+            ((Iterable<OutboxEmail>) inv.getArgument(0)).forEach(saved::add);
+            return saved;
+        });
+        when(repository.findById(any())).thenAnswer(inv -> Optional.ofNullable(table.get(inv.<Long>getArgument(0))));
+        when(repository.findAllById(anyIterable())).thenAnswer(inv -> {
+            List<OutboxEmail> found = new ArrayList<>();
+            ((Iterable<Long>) inv.getArgument(0)).forEach(id -> Optional.ofNullable(table.get(id)).ifPresent(found::add));
+            return found;
+        });
+        when(repository.lockNextAvailable(any(), anyInt())).thenAnswer(inv -> {
+            LocalDateTime now = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            return table.values().stream()
+                .filter(e -> (OutboxEmail.STATUS_PENDING.equals(e.getStatus()) && !e.getNextAttemptAt().isAfter(now))
+                    || (OutboxEmail.STATUS_SENDING.equals(e.getStatus()) && e.getLockedUntil().isBefore(now)))
+                .limit(limit)
+                .toList();
+        });
+        when(repository.countByStatusIn(any())).thenAnswer(inv -> {
+            List<String> statuses = List.copyOf(inv.getArgument(0));
+            return table.values().stream().filter(e -> statuses.contains(e.getStatus())).count();
+        });
+        return repository;
+    }
+
+    /**
+     * Servidor SMTP mínimo (HELO/EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT) que cuenta conexiones y mensajes.
+     */
+    private static class FakeSmtpServer implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        final AtomicInteger connections = new AtomicInteger();
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        FakeSmtpServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    connections.incrementAndGet();
+                    handle(socket);
+                } catch (IOException e) {
+                    // Servidor cerrado o cliente desconectado
+                }
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 localhost ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO", "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            data.append(line).append('\n');
+                        }
+                        messages.add(data.toString());
+                        reply(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        }
+
+        private static void reply(OutputStream out, String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ES.Backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.ES.Backend.entity.NotificationSequence;
+import com.ES.Backend.websocket.WsMessage;
+
+class NotificationLogServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final CountDownLatch mongoReleased = new CountDownLatch(1);
+    private final AtomicLong seq = new AtomicLong();
+    private final NotificationLogService service =
+        new NotificationLogService(mongoTemplate, true, Duration.ofDays(7), 200, 2);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        mongoReleased.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void publishReturnsBeforeMongoAndDeliversEachStreamInOrder() throws InterruptedException {
+        // Mongo no responde hasta que el test lo libera
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NotificationSequence.class))).thenAnswer(invocation -> {
+            mongoReleased.await(5, TimeUnit.SECONDS);
+            NotificationSequence sequence = new NotificationSequence();
+            sequence.setSeq(seq.incrementAndGet());
+            return sequence;
+        });
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            service.publish("ana@example.com", NotificationLogService.STREAM_USER,
+                WsMessage.Notification.toUser("Aviso", "n" + i), null, payload -> {
+                    delivered.add(payload.getPayload());
+                    done.countDown();
+                });
+        }
+        assertTrue(delivered.isEmpty());
+
+        mongoReleased.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            String payload = delivered.get(i);
+            assertTrue(payload.startsWith("{\"seq\":" + (i + 1) + ",\"stream\":\"USER\","), payload);
+            assertTrue(payload.contains("\"n" + i + "\""), payload);
+        }
+        assertEquals(50, delivered.size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.ES.Backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ES.Backend.StatementCounter;
+import com.ES.Backend.entity.SignatureRequest;
+import com.ES.Backend.entity.SignatureRequestUser;
+import com.ES.Backend.entity.User;
+import com.ES.Backend.repository.SignatureRequestRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Cada lectura de /api/signature-requests cuesta una consulta propia, más la del usuario que hace JwtFilter
+ * y, en las bandejas, la que resuelve el email del token a su id. Ninguna devuelve la contraseña del
+ * certificado. Contra la base de DB_URL con la configuración de la aplicación; los datos se descartan con
+ * el rollback (MockMvc atiende la petición en el hilo del test, dentro de su transacción).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("dbtest")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class SignatureRequestReadQueriesTest {
+    private static final int SIGNERS = 5;
+    // JwtFilter carga el usuario del token en cada petición autenticada
+    private static final int AUTH_QUERIES = 1;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private SignatureRequestRepository signatureRequestRepository;
+
+    private String authorization;
+    private Long requestId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User("Ana", "Prueba", "read-queries-" + System.nanoTime() + "@example.com", "x", "USER");
+        owner.setVerified(true);
+        owner.setCreatedAt(new Date());
+        entityManager.persist(owner);
+        authorization = "Bearer " + jwtService.generateToken(owner.getEmail());
+
+        // La crea el propio usuario y es su primer firmante: sale en su bandeja de entrada y en la de salida
+        SignatureRequest request = new SignatureRequest();
+        request.setDocumentPath("uploads/documents/test/read.pdf");
+        request.setRequestedBy(owner.getId());
+        List<SignatureRequestUser> users = new ArrayList<>();
+        for (int i = 0; i < SIGNERS; i++) {
+            SignatureRequestUser user = new SignatureRequestUser();
+            user.setUserId(i == 0 ? owner.getId() : -(long) i);
+            user.setPage(1);
+            user.setCertificateId("cert-" + i);
+            user.setCertificatePassword("secreto-" + i);
+            user.setSignatureRequest(request);
+            users.add(user);
+        }
+        request.setUsers(users);
+        request.setPendingResponders(SIGNERS);
+        request.setPermittedResponders(0);
+        entityManager.persist(request);
+        entityManager.flush();
+        entityManager.clear();
+        requestId = request.getId();
+        StatementCounter.reset();
+    }
+
+    @Test
+    void getSignatureRequestIsOneQuery() throws Exception {
+        String body = read("/api/signature-requests/" + requestId)
+            .andExpect(jsonPath("$.users.length()").value(SIGNERS))
+            .andReturn().getResponse().getContentAsString();
+
+        assertEquals(AUTH_QUERIES + 1, StatementCounter.count());
+        assertFalse(body.contains("secreto-"), body);
+    }
+
+    @Test
+    void getUsersByRequestIsOneQuery() throws Exception {
+        String body = read("/api/signature-requests/" + requestId + "/users")
+            .andExpect(jsonPath("$.length()").value(SIGNERS))
+            .andExpect(jsonPath("$[0].certificateId").value("cert-0"))
+            .andReturn().getResponse().getContentAsString();
+
+        assertEquals(AUTH_QUERIES + 1, StatementCounter.count());
+        assertFalse(body.contains("secreto-"), body);
+    }
+
+    @Test
+    void inboxIsOnePageQuery() throws Exception {
+        String body = read("/api/signature-requests/inbox")
+            .andExpect(jsonPath("$.items.length()").value(1))
+            .andExpect(jsonPath("$.items[0].requestId").value(requestId))
+            .andReturn().getResponse().getContentAsString();
+
+        assertEquals(AUTH_QUERIES + 2, StatementCounter.count());
+        assertFalse(body.contains("secreto-"), body);
+    }
+
+    @Test
+    void outboxIsOnePageQuery() throws Exception {
+        read("/api/signature-requests/outbox")
+            .andExpect(jsonPath("$.items.length()").value(1))
+            .andExpect(jsonPath("$.items[0].requestId").value(requestId))
+            .andExpect(jsonPath("$.items[0].pendingResponders").value(SIGNERS));
+
+        assertEquals(AUTH_QUERIES + 2, StatementCounter.count());
+    }
+
+    @Test
+    void entityGraphLoadsSignersWithTheRequest() {
+        SignatureRequest request = signatureRequestRepository.findWithUsersById(requestId).orElseThrow();
+
+        assertTrue(Hibernate.isInitialized(request.getUsers()));
+        assertEquals(SIGNERS, request.getUsers().size());
+        assertEquals(1, StatementCounter.count());
+    }
+
+    private ResultActions read(String path) throws Exception {
+        StatementCounter.reset();
+        return mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, authorization))
+            .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,122 @@
+package com.ES.Backend.signer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
+import org.apache.pdfbox.pdmodel.interactive.form.PDSignatureField;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSProcessableByteArray;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Firma un PDF dos veces con los certificados fijos de los benchmarks (src/jmh/resources/fixtures)
+ * y valida cada firma con PDFBox y BouncyCastle.
+ */
+class PadesSignerTest {
+    private static final Path FIXTURES = Path.of("src", "jmh", "resources", "fixtures");
+    private static final String P12_PASSWORD = "benchmark";
+
+    private final PadesSigner signer = new PadesSigner(0);
+
+    @ParameterizedTest
+    @EnumSource(KeyProfile.class)
+    void signsTwiceAndBothSignaturesVerify(KeyProfile profile) throws Exception {
+        SigningKey key = signingKey(profile);
+        byte[] original = pdf();
+
+        byte[] once = signer.sign(original, key, SignaturePlacement.at(0, 50, 50));
+        byte[] twice = signer.sign(once, key, SignaturePlacement.at(0, 50, 200));
+
+        try (PDDocument doc = Loader.loadPDF(twice)) {
+            List<String> names = doc.getSignatureFields().stream().map(PDSignatureField::getPartialName).toList();
+            assertEquals(List.of("Sig1", "Sig2"), names);
+
+            List<PDSignature> signatures = doc.getSignatureDictionaries();
+            assertEquals(2, signatures.size());
+            // Cada firma cubre su revisión entera: la primera, el PDF tal como quedó tras firmar una vez
+            verify(signatures.get(0), twice, once.length, key);
+            verify(signatures.get(1), twice, twice.length, key);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyProfile.class)
+    void reservedSizeFitsTheChain(KeyProfile profile) throws Exception {
+        SigningKey key = signingKey(profile);
+        byte[] signed = signer.sign(pdf(), key, SignaturePlacement.at(0, 50, 50));
+
+        try (PDDocument doc = Loader.loadPDF(signed)) {
+            PDSignature signature = doc.getSignatureDictionaries().get(0);
+            int[] byteRange = signature.getByteRange();
+            byte[] cms = cms(signature, signed).getEncoded();
+            int reserved = signer.reservedSize(key);
+
+            assertTrue(cms.length <= reserved, "CMS de " + cms.length + " bytes en " + reserved + " reservados");
+            // El hueco del /ByteRange es exactamente el /Contents reservado: <hex de reserved bytes>
+            assertEquals(2 * reserved + 2, byteRange[2] - byteRange[1]);
+        }
+    }
+
+    private static void verify(PDSignature signature, byte[] pdf, int revisionLength, SigningKey key) throws Exception {
+        assertEquals(PDSignature.SUBFILTER_ETSI_CADES_DETACHED.getName(), signature.getSubFilter());
+
+        int[] byteRange = signature.getByteRange();
+        assertEquals(4, byteRange.length);
+        assertEquals(0, byteRange[0]);
+        assertEquals(revisionLength, byteRange[2] + byteRange[3]);
+        // Lo único sin firmar es el propio /Contents
+        assertEquals('<', pdf[byteRange[1]]);
+        assertEquals('>', pdf[byteRange[2] - 1]);
+
+        CMSSignedData cms = cms(signature, pdf);
+        SignerInformation signerInfo = cms.getSignerInfos().getSigners().iterator().next();
+        X509CertificateHolder embedded = (X509CertificateHolder) cms.getCertificates().getMatches(signerInfo.getSID()).iterator().next();
+        assertArrayEquals(key.certificate().getEncoded(), embedded.getEncoded());
+        assertTrue(signerInfo.verify(new JcaSimpleSignerInfoVerifierBuilder().build(key.certificate())));
+    }
+
+    private static CMSSignedData cms(PDSignature signature, byte[] pdf) throws Exception {
+        return new CMSSignedData(new CMSProcessableByteArray(signature.getSignedContent(pdf)), signature.getContents(pdf));
+    }
+
+    private static SigningKey signingKey(KeyProfile profile) throws Exception {
+        String file = "user-" + profile.name().toLowerCase().replace('_', '-') + ".p12";
+        return SigningKey.fromPkcs12(Files.readAllBytes(FIXTURES.resolve(file)), P12_PASSWORD.toCharArray());
+    }
+
+    private static byte[] pdf() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                cs.beginText();
+                cs.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 11);
+                cs.newLineAtOffset(50, 780);
+                cs.showText("Documento de prueba para la firma PAdES.");
+                cs.endText();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
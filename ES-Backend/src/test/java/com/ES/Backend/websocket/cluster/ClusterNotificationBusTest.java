@@ -0,0 +1,281 @@
+package com.ES.Backend.websocket.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.ES.Backend.websocket.OutboundMessageDispatcher;
+import com.ES.Backend.websocket.SessionRegistry;
+import com.ES.Backend.websocket.WsMessage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Varios nodos dentro de la misma JVM unidos por un hub en memoria (en lugar de Postgres) y
+ * compartiendo el mismo directorio de presencia.
+ */
+class ClusterNotificationBusTest {
+
+    /** Hub que cuenta lo que recibe cada nodo y puede entregar cada mensaje dos veces. */
+    static class CountingHub extends InMemoryClusterTransport.Hub {
+        final Map<String, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+        volatile boolean duplicate;
+
+        @Override
+        protected void deliver(String targetNodeId, String payload) {
+            deliveries.computeIfAbsent(targetNodeId, k -> new AtomicInteger()).incrementAndGet();
+            super.deliver(targetNodeId, payload);
+            if (duplicate) {
+                super.deliver(targetNodeId, payload);
+            }
+        }
+
+        int deliveries(String nodeId) {
+            AtomicInteger count = deliveries.get(nodeId);
+            return count != null ? count.get() : 0;
+        }
+    }
+
+    /** Directorio en memoria que simula que otro nodo dio por caído a uno y borró su presencia. */
+    static class DroppablePresence extends InMemoryPresenceDirectory {
+        private final Set<String> dropped = ConcurrentHashMap.newKeySet();
+
+        void dropNode(String nodeId) {
+            unregister(nodeId);
+            dropped.add(nodeId);
+        }
+
+        @Override
+        public boolean heartbeat(String nodeId) {
+            return dropped.remove(nodeId);
+        }
+    }
+
+    class Node {
+        final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        final OutboundMessageDispatcher outbound = new OutboundMessageDispatcher(meters, 64, "drop-oldest", 1, 0);
+        final SessionRegistry registry = new SessionRegistry(outbound, 100_000, 10);
+        final ClusterNotificationBus bus;
+
+        Node(String nodeId) {
+            bus = new ClusterNotificationBus(registry, new InMemoryClusterTransport(hub), presence, meters, nodeId, 100);
+            bus.start();
+            nodes.add(this);
+        }
+
+        BlockingQueue<String> connect(String sessionId, String userEmail, String role) {
+            BlockingQueue<String> received = new LinkedBlockingQueue<>();
+            registry.register(session(sessionId, received));
+            registry.subscribe(sessionId, userEmail, role, 1L);
+            return received;
+        }
+
+        void disconnect(String sessionId) {
+            registry.remove(sessionId);
+        }
+    }
+
+    private final CountingHub hub = new CountingHub();
+    private final DroppablePresence presence = new DroppablePresence();
+    private final List<Node> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Node node : nodes) {
+            node.bus.stop();
+            node.outbound.shutdown();
+        }
+    }
+
+    @Test
+    void deliversToUserConnectedToAnotherNode() throws InterruptedException {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        BlockingQueue<String> inbox = b.connect("s1", "ana@example.com", "USER");
+
+        int local = a.bus.publishToUser("ana@example.com", WsMessage.Notification.toUser("Firma Completada", "Listo"), null);
+
+        assertEquals(0, local);
+        String message = inbox.poll(5, TimeUnit.SECONDS);
+        assertTrue(message != null && message.contains("\"type\":\"NOTIFICATION\"") && message.contains("Firma Completada"));
+        assertEquals(1.0, b.meters.counter("websocket.cluster.received").count());
+    }
+
+    @Test
+    void forwardsOnlyToNodesWithSessionsOfTheTarget() throws InterruptedException {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        new Node("c");
+        BlockingQueue<String> local = a.connect("s1", "ana@example.com", "USER");
+        BlockingQueue<String> remote = b.connect("s2", "ana@example.com", "USER");
+
+        a.bus.publishToUser("ana@example.com", WsMessage.Notification.toUser("Aviso", "Hola"), null);
+
+        assertTrue(local.poll(5, TimeUnit.SECONDS) != null);
+        assertTrue(remote.poll(5, TimeUnit.SECONDS) != null);
+        assertEquals(0, hub.deliveries("a"));
+        assertEquals(1, hub.deliveries("b"));
+        assertEquals(0, hub.deliveries("c"));
+    }
+
+    @Test
+    void roleBroadcastReachesEveryNodeWithThatRole() throws InterruptedException {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        Node c = new Node("c");
+        BlockingQueue<String> adminA = a.connect("s1", "admin1@example.com", "ADMIN");
+        BlockingQueue<String> adminB = b.connect("s2", "admin2@example.com", "ADMIN");
+        BlockingQueue<String> user = c.connect("s3", "ana@example.com", "USER");
+
+        a.bus.publishToRole("ADMIN", WsMessage.Notification.toAdmin("Nueva Solicitud", "Pendiente de revisión"));
+
+        assertTrue(adminA.poll(5, TimeUnit.SECONDS) != null);
+        assertTrue(adminB.poll(5, TimeUnit.SECONDS) != null);
+        assertEquals(0, hub.deliveries("c"));
+        assertTrue(user.isEmpty());
+    }
+
+    @Test
+    void duplicatedEnvelopeIsDeliveredOnce() throws InterruptedException {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        BlockingQueue<String> inbox = b.connect("s1", "ana@example.com", "USER");
+        hub.duplicate = true;
+
+        a.bus.publishToUser("ana@example.com", WsMessage.Notification.toUser("Aviso", "Una vez"), null);
+
+        assertTrue(inbox.poll(5, TimeUnit.SECONDS) != null);
+        assertTrue(inbox.poll(300, TimeUnit.MILLISECONDS) == null);
+        assertEquals(1.0, b.meters.counter("websocket.cluster.duplicates").count());
+    }
+
+    @Test
+    void stopsForwardingOnceLastSessionCloses() {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        b.connect("s1", "ana@example.com", "USER");
+        b.connect("s2", "ana@example.com", "USER");
+
+        b.disconnect("s1");
+        assertEquals(1, presence.nodesForUser("ana@example.com").size());
+        b.disconnect("s2");
+        assertTrue(presence.nodesForUser("ana@example.com").isEmpty());
+
+        a.bus.publishToUser("ana@example.com", WsMessage.Notification.toUser("Aviso", "Nadie"), null);
+        assertEquals(0, hub.deliveries("b"));
+    }
+
+    @Test
+    void heartbeatRepublishesPresenceDroppedByAPeer() {
+        Node b = new Node("b");
+        b.connect("s1", "ana@example.com", "USER");
+        b.connect("s2", "admin@example.com", "ADMIN");
+        presence.dropNode("b");
+        assertTrue(presence.nodesForUser("ana@example.com").isEmpty());
+
+        b.bus.heartbeat();
+
+        assertEquals(Set.of("b"), presence.nodesForUser("ana@example.com"));
+        assertEquals(Set.of("b"), presence.nodesForRole("ADMIN"));
+    }
+
+    @Test
+    void reconnectDuringOfflineKeepsThePresence() throws InterruptedException {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        OutboundMessageDispatcher outbound = new OutboundMessageDispatcher(meters, 64, "drop-oldest", 1, 0);
+        SessionRegistry registry = new SessionRegistry(outbound, 100, 10);
+        CountDownLatch offlineStarted = new CountDownLatch(1);
+        registry.setPresenceListener(new SessionRegistry.PresenceListener() {
+            @Override
+            public void online(String userEmail, String role) {
+                presence.online("b", userEmail, role);
+            }
+
+            @Override
+            public void offline(String userEmail, String role) {
+                offlineStarted.countDown();
+                // Un DELETE lento: la reconexión llega mientras tanto
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                presence.offline("b", userEmail);
+            }
+        });
+        registry.register(session("s1", new LinkedBlockingQueue<>()));
+        registry.register(session("s2", new LinkedBlockingQueue<>()));
+        registry.subscribe("s1", "ana@example.com", "USER", 1L);
+
+        Thread close = new Thread(() -> registry.remove("s1"));
+        close.start();
+        assertTrue(offlineStarted.await(5, TimeUnit.SECONDS));
+        registry.subscribe("s2", "ana@example.com", "USER", 1L);
+        close.join();
+
+        assertEquals(1, registry.sessionCount("ana@example.com"));
+        assertEquals(1, presence.nodesForUser("ana@example.com").size());
+        outbound.shutdown();
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+    void postgresTransportDeliversBetweenTwoNodes() throws InterruptedException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            System.getenv("DB_URL"), System.getenv("DB_USER"), System.getenv("DB_PASS"));
+        PostgresClusterTransport a = new PostgresClusterTransport(dataSource, 200, 1000);
+        PostgresClusterTransport b = new PostgresClusterTransport(dataSource, 200, 1000);
+        List<String> receivedByA = new CopyOnWriteArrayList<>();
+        BlockingQueue<String> receivedByB = new LinkedBlockingQueue<>();
+        a.start("test-node-a", receivedByA::add);
+        b.start("test-node-b", receivedByB::add);
+        try {
+            a.send("test-node-b", "{\"hola\":\"b\"}");
+
+            assertEquals("{\"hola\":\"b\"}", receivedByB.poll(5, TimeUnit.SECONDS));
+            assertTrue(receivedByA.isEmpty());
+        } finally {
+            a.stop();
+            b.stop();
+        }
+    }
+
+    private static WebSocketSession session(String id, BlockingQueue<String> received) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+            WebSocketSession.class.getClassLoader(), new Class<?>[]{WebSocketSession.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getId" -> id;
+                case "isOpen" -> true;
+                case "getAcceptedProtocol" -> null;
+                case "getExtensions" -> List.of();
+                case "sendMessage" -> {
+                    received.add(((TextMessage) args[0]).getPayload());
+                    yield null;
+                }
+                case "close" -> null;
+                case "toString" -> "TestSession[" + id + "]";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
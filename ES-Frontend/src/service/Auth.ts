@@ -15,6 +15,11 @@ export const authState = reactive<AuthState>({
   isAuthenticated: !!localStorage.getItem("token"),
 });
 
+// El WebSocket reenvía lo perdido al reconectar; solo si no puede se recalcula el estado completo
+webSocketService.onResync(() => {
+  NotificationTriggerService.triggerStatusNotifications();
+});
+
 // Auth methods
 export const authService = {
   // Save authentication data
@@ -30,9 +35,6 @@ export const authService = {
 
     // Connect to WebSocket for notifications
     webSocketService.connect(token);
-    
-    // Trigger status notifications after login
-    NotificationTriggerService.triggerAfterLogin();
   },
 
   // Clear authentication data
@@ -24,14 +24,4 @@ export class NotificationTriggerService {
       console.error('Error triggering status notifications:', error);
     }
   }
-
-  /**
-   * Trigger status notifications after login
-   */
-  static async triggerAfterLogin(): Promise<void> {
-    // Wait a bit for WebSocket to connect
-    setTimeout(() => {
-      this.triggerStatusNotifications();
-    }, 2000);
-  }
-} 
\ No newline at end of file
+}
\ No newline at end of file
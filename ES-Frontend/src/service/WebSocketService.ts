@@ -23,6 +23,18 @@ export interface SignatureRequestUpdateMessage {
   timestamp: string;
 }
 
+export interface SigningJobUpdateMessage {
+  jobId: number;
+  jobType: string;
+  status: string;
+  documentId: string | null;
+  requestId: number | null;
+  message: string;
+  timestamp: string;
+}
+
+export type ListenerType = 'user' | 'admin' | 'signature_request' | 'signature_request_update' | 'signing_job_update';
+
 // Wrapper TypeScript para el WebSocketManager JavaScript
 class WebSocketService {
   connect(token: string) {
@@ -33,14 +45,18 @@ class WebSocketService {
     webSocketManager.disconnect();
   }
 
-  addListener(type: 'user' | 'admin', callback: (message: NotificationMessage | SignatureRequestMessage | SignatureRequestUpdateMessage | any) => void) {
+  addListener(type: ListenerType, callback: (message: NotificationMessage | SignatureRequestMessage | SignatureRequestUpdateMessage | SigningJobUpdateMessage | any) => void) {
     webSocketManager.addListener(type, callback);
   }
 
-  removeListener(type: 'user' | 'admin') {
+  removeListener(type: ListenerType) {
     webSocketManager.removeListener(type);
   }
 
+  onResync(handler: () => void) {
+    webSocketManager.onResync(handler);
+  }
+
   isConnectedStatus() {
     return webSocketManager.isConnectedStatus();
   }
@@ -122,6 +122,12 @@ export function approveCertificateRequest(id) {
 export function rejectCertificateRequest(id, reason) {
     return api.put(`/api/certificate-requests/${id}/reject`, { reason });
 }
+export function approveCertificateRequests(ids) {
+    return api.put("/api/certificate-requests/bulk/approve", { ids });
+}
+export function rejectCertificateRequests(ids, reason) {
+    return api.put("/api/certificate-requests/bulk/reject", { ids, reason });
+}
 // --- USUARIOS ---
 export function getAllUsers() {
     return api.get('/api/users');
@@ -129,14 +135,24 @@ export function getAllUsers() {
 export function getUserByEmail(email) {
     return api.get('/api/users/search', { params: { email } });
 }
+export function getEmailPreferences() {
+    return api.get('/api/users/me/email-preferences');
+}
+export function updateEmailPreferences(digest) {
+    return api.put('/api/users/me/email-preferences', { digest });
+}
 // --- SOLICITUDES DE FIRMA GRUPAL ---
 // NOTA: Las solicitudes de firma ahora se manejan en tiempo real a través de WebSocket
 // Los endpoints HTTP se mantienen para compatibilidad y operaciones iniciales
 export function createSignatureRequest(request) {
     return api.post('/api/signature-requests', request);
 }
-export function getAllSignatureRequests() {
-    return api.get('/api/signature-requests');
+// Bandejas paginadas por cursor: se pasa el nextCursor de la respuesta como before
+export function getSignatureInbox(params = {}) {
+    return api.get('/api/signature-requests/inbox', { params });
+}
+export function getSignatureOutbox(params = {}) {
+    return api.get('/api/signature-requests/outbox', { params });
 }
 export function getSignatureRequestById(id) {
     return api.get(`/api/signature-requests/${id}`);
@@ -147,4 +163,7 @@ export function responderSolicitudFirma(userResponse) {
 export function getUsersBySignatureRequest(signatureRequestId) {
     return api.get(`/api/signature-requests/${signatureRequestId}/users`);
 }
+export function getSigningJob(id) {
+    return api.get(`/api/signing-jobs/${id}`);
+}
 export { api };
@@ -141,6 +141,7 @@ export function createCertificateRequest(request: {
   correo: string;
   organizacion: string;
   password: string;
+  keyProfile?: 'RSA_2048' | 'EC_P256';
 }) {
   return api.post("/api/certificate-requests/request", request);
 }
@@ -165,6 +166,14 @@ export function rejectCertificateRequest(id: number, reason: string) {
   return api.put(`/api/certificate-requests/${id}/reject`, { reason });
 }
 
+export function approveCertificateRequests(ids: number[]) {
+  return api.put("/api/certificate-requests/bulk/approve", { ids });
+}
+
+export function rejectCertificateRequests(ids: number[], reason: string) {
+  return api.put("/api/certificate-requests/bulk/reject", { ids, reason });
+}
+
 // --- USUARIOS ---
 export function getAllUsers() {
   return api.get('/api/users');
@@ -174,6 +183,14 @@ export function getUserByEmail(email: string) {
   return api.get('/api/users/search', { params: { email } });
 }
 
+export function getEmailPreferences() {
+  return api.get<{ digest: boolean }>('/api/users/me/email-preferences');
+}
+
+export function updateEmailPreferences(digest: boolean) {
+  return api.put<{ digest: boolean }>('/api/users/me/email-preferences', { digest });
+}
+
 // --- SOLICITUDES DE FIRMA GRUPAL ---
 // NOTA: Las solicitudes de firma ahora se manejan en tiempo real a través de WebSocket
 // Los endpoints HTTP se mantienen para compatibilidad y operaciones iniciales
@@ -184,8 +201,13 @@ export function createSignatureRequest(request: {
   return api.post('/api/signature-requests', request);
 }
 
-export function getAllSignatureRequests() {
-  return api.get('/api/signature-requests');
+// Bandejas paginadas por cursor: se pasa el nextCursor de la respuesta como before
+export function getSignatureInbox(params: { status?: string; before?: number | null; limit?: number } = {}) {
+  return api.get('/api/signature-requests/inbox', { params });
+}
+
+export function getSignatureOutbox(params: { status?: string; before?: number | null; limit?: number } = {}) {
+  return api.get('/api/signature-requests/outbox', { params });
 }
 
 export function getSignatureRequestById(id: number) {
@@ -211,4 +233,8 @@ export function getUsersBySignatureRequest(signatureRequestId: number) {
   return api.get(`/api/signature-requests/${signatureRequestId}/users`);
 }
 
+export function getSigningJob(id: number) {
+  return api.get(`/api/signing-jobs/${id}`);
+}
+
 export { api };
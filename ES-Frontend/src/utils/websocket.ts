@@ -19,6 +19,8 @@ const getWebSocketUrl = () => {
 };
 
 const WS_URL = getWebSocketUrl();
+// Subprotocolo de lotes: el servidor puede agrupar varios avisos en un único frame (array JSON)
+const BATCH_PROTOCOL = 'es.batch.v1';
 
 interface AuthSuccessMessage {
   userEmail: string;
@@ -49,8 +51,27 @@ interface SignatureRequestUpdateMessage {
   timestamp: string;
 }
 
+interface SigningJobUpdateMessage {
+  jobId: number;
+  jobType: string;
+  status: string;
+  documentId: string | null;
+  requestId: number | null;
+  message: string;
+  timestamp: string;
+}
+
 type MessageListener = (message: any) => void;
 
+// Última secuencia recibida del flujo del usuario y del de su rol; se envía en AUTH para recibir solo lo perdido
+interface ReplayCursor {
+  userEmail: string;
+  seq: number;
+  roleSeq: number | null;
+}
+
+const CURSOR_KEY = 'ws_cursor';
+
 class WebSocketManager {
   private socket: WebSocket | null;
   private isConnected: boolean;
@@ -59,6 +80,9 @@ class WebSocketManager {
   private listeners: Map<string, MessageListener>;
   private token: string;
   private manualDisconnect: boolean;
+  private cursor: ReplayCursor | null;
+  private seenSeqs: Set<string>;
+  private resyncHandler: (() => void) | null;
 
   constructor() {
     this.socket = null;
@@ -68,6 +92,9 @@ class WebSocketManager {
     this.listeners = new Map();
     this.token = '';
     this.manualDisconnect = false; // Flag to prevent auto-reconnection after manual disconnect
+    this.cursor = null;
+    this.seenSeqs = new Set();
+    this.resyncHandler = null;
   }
 
   async connect(token: string): Promise<void> {
@@ -96,13 +123,22 @@ class WebSocketManager {
         console.log('Attempting to connect to WebSocket at:', WS_URL);
         console.log('Environment variables:', import.meta.env);
         
-        this.socket = new WebSocket(WS_URL);
+        // El token va en la URL: el servidor lo valida en el handshake y rechaza la conexión antes de abrirla
+        const separator = WS_URL.includes('?') ? '&' : '?';
+        this.socket = new WebSocket(`${WS_URL}${separator}token=${encodeURIComponent(token)}`, [BATCH_PROTOCOL]);
       
       this.socket.onopen = () => {
         console.log('✅ WebSocket conectado exitosamente');
         this.isConnected = true;
         this.reconnectAttempts = 0;
-        this.sendMessage({ type: 'AUTH', token });
+        this.seenSeqs.clear();
+        this.cursor = this.loadCursor();
+        this.sendMessage({
+          type: 'AUTH',
+          token,
+          lastSeq: this.cursor?.seq ?? null,
+          lastRoleSeq: this.cursor?.roleSeq ?? null
+        });
         resolve();
       };
 
@@ -129,53 +165,10 @@ class WebSocketManager {
       console.log('📨 Mensaje recibido:', data);
       
       const parsedData = JSON.parse(data);
-      
-      if (parsedData.type === 'CONNECTION') {
-        console.log('✅ Conexión WebSocket confirmada:', parsedData.message);
-      } else if (parsedData.type === 'AUTH_SUCCESS') {
-        console.log('🔐 Autenticación exitosa:', parsedData.message, 'Usuario:', parsedData.userEmail);
-        // Notificar que la autenticación fue exitosa
-        this.notifyListeners('auth_success', {
-          userEmail: parsedData.userEmail,
-          userRole: parsedData.userRole,
-          userId: parsedData.userId
-        } as AuthSuccessMessage);
-      } else if (parsedData.type === 'NOTIFICATION') {
-        console.log('🔔 Notificación recibida:', parsedData);
-        const notification: NotificationMessage = {
-          title: parsedData.title,
-          message: parsedData.message,
-          timestamp: parsedData.timestamp || new Date().toISOString()
-        };
-        
-        if (parsedData.target === 'USER') {
-          this.notifyListeners('user', notification);
-        } else if (parsedData.target === 'ADMIN') {
-          this.notifyListeners('admin', notification);
-        }
-      } else if (parsedData.type === 'SIGNATURE_REQUEST') {
-        console.log('📝 Nueva solicitud de firma recibida:', parsedData);
-        const signatureRequest: SignatureRequestMessage = {
-          requestId: parsedData.requestId,
-          documentPath: parsedData.documentPath,
-          documentName: parsedData.documentName,
-          page: parsedData.page,
-          posX: parsedData.posX,
-          posY: parsedData.posY,
-          timestamp: parsedData.timestamp || new Date().toISOString()
-        };
-        this.notifyListeners('signature_request', signatureRequest);
-      } else if (parsedData.type === 'SIGNATURE_REQUEST_UPDATE') {
-        console.log('🔄 Actualización de solicitud de firma:', parsedData);
-        const update: SignatureRequestUpdateMessage = {
-          requestId: parsedData.requestId,
-          status: parsedData.status,
-          message: parsedData.message,
-          timestamp: parsedData.timestamp || new Date().toISOString()
-        };
-        this.notifyListeners('signature_request_update', update);
+      if (Array.isArray(parsedData)) {
+        parsedData.forEach((message: any) => this.dispatch(message));
       } else {
-        console.log('📝 Mensaje de otro tipo:', parsedData);
+        this.dispatch(parsedData);
       }
     } catch (error) {
       console.error('❌ Error parsing message:', error);
@@ -183,6 +176,133 @@ class WebSocketManager {
     }
   }
 
+  private dispatch(parsedData: any): void {
+    // Los mensajes con secuencia pueden llegar dos veces (en vivo y en el REPLAY): se procesan una sola
+    if (typeof parsedData.seq === 'number' && parsedData.type !== 'REPLAY' && !this.track(parsedData.stream, parsedData.seq)) {
+      return;
+    }
+
+    if (parsedData.type === 'CONNECTION') {
+      console.log('✅ Conexión WebSocket confirmada:', parsedData.message);
+    } else if (parsedData.type === 'AUTH_SUCCESS') {
+      console.log('🔐 Autenticación exitosa:', parsedData.message, 'Usuario:', parsedData.userEmail);
+      if (parsedData.resync) {
+        // Sin cursor válido no hay REPLAY: se parte de la secuencia actual y se recalcula el estado
+        this.cursor = { userEmail: parsedData.userEmail, seq: parsedData.seq, roleSeq: parsedData.roleSeq ?? null };
+        this.saveCursor();
+        this.requestResync();
+      }
+      // Notificar que la autenticación fue exitosa
+      this.notifyListeners('auth_success', {
+        userEmail: parsedData.userEmail,
+        userRole: parsedData.userRole,
+        userId: parsedData.userId
+      } as AuthSuccessMessage);
+    } else if (parsedData.type === 'NOTIFICATION') {
+      console.log('🔔 Notificación recibida:', parsedData);
+      const notification: NotificationMessage = {
+        title: parsedData.title,
+        message: parsedData.message,
+        timestamp: parsedData.timestamp || new Date().toISOString()
+      };
+      
+      if (parsedData.target === 'USER') {
+        this.notifyListeners('user', notification);
+      } else if (parsedData.target === 'ADMIN') {
+        this.notifyListeners('admin', notification);
+      }
+    } else if (parsedData.type === 'SIGNATURE_REQUEST') {
+      console.log('📝 Nueva solicitud de firma recibida:', parsedData);
+      const signatureRequest: SignatureRequestMessage = {
+        requestId: parsedData.requestId,
+        documentPath: parsedData.documentPath,
+        documentName: parsedData.documentName,
+        page: parsedData.page,
+        posX: parsedData.posX,
+        posY: parsedData.posY,
+        timestamp: parsedData.timestamp || new Date().toISOString()
+      };
+      this.notifyListeners('signature_request', signatureRequest);
+    } else if (parsedData.type === 'SIGNATURE_REQUEST_UPDATE') {
+      console.log('🔄 Actualización de solicitud de firma:', parsedData);
+      const update: SignatureRequestUpdateMessage = {
+        requestId: parsedData.requestId,
+        status: parsedData.status,
+        message: parsedData.message,
+        timestamp: parsedData.timestamp || new Date().toISOString()
+      };
+      this.notifyListeners('signature_request_update', update);
+    } else if (parsedData.type === 'SIGNING_JOB_UPDATE') {
+      console.log('🖋️ Progreso de firma:', parsedData);
+      const update: SigningJobUpdateMessage = {
+        jobId: parsedData.jobId,
+        jobType: parsedData.jobType,
+        status: parsedData.status,
+        documentId: parsedData.documentId,
+        requestId: parsedData.requestId,
+        message: parsedData.message,
+        timestamp: parsedData.timestamp || new Date().toISOString()
+      };
+      this.notifyListeners('signing_job_update', update);
+    } else if (parsedData.type === 'REPLAY') {
+      console.log(`⏪ Reenvío de ${parsedData.messages.length} mensaje(s) perdidos (${parsedData.stream})`);
+      parsedData.messages.forEach((message: any) => this.dispatch(message));
+      if (parsedData.truncated) {
+        this.requestResync();
+      }
+    } else {
+      console.log('📝 Mensaje de otro tipo:', parsedData);
+    }
+  }
+
+  private track(stream: string, seq: number): boolean {
+    const key = `${stream}:${seq}`;
+    if (this.seenSeqs.has(key)) {
+      return false;
+    }
+    this.seenSeqs.add(key);
+    if (this.cursor) {
+      if (stream === 'ROLE') {
+        this.cursor.roleSeq = Math.max(this.cursor.roleSeq ?? 0, seq);
+      } else {
+        this.cursor.seq = Math.max(this.cursor.seq, seq);
+      }
+      this.saveCursor();
+    }
+    return true;
+  }
+
+  private loadCursor(): ReplayCursor | null {
+    try {
+      const cursor: ReplayCursor | null = JSON.parse(localStorage.getItem(CURSOR_KEY) || 'null');
+      const user = JSON.parse(localStorage.getItem('user') || 'null');
+      // El cursor de otro usuario no sirve
+      return cursor && user && cursor.userEmail === user.email ? cursor : null;
+    } catch {
+      return null;
+    }
+  }
+
+  private saveCursor(): void {
+    if (this.cursor) {
+      localStorage.setItem(CURSOR_KEY, JSON.stringify(this.cursor));
+    }
+  }
+
+  private requestResync(): void {
+    if (this.resyncHandler) {
+      this.resyncHandler();
+    }
+  }
+
+  /**
+   * Se llama cuando el servidor no puede reenviar lo perdido (primer inicio de sesión, cursor caducado
+   * o demasiados mensajes) y hay que recalcular el estado desde la API.
+   */
+  onResync(handler: () => void): void {
+    this.resyncHandler = handler;
+  }
+
   sendMessage(message: any): void {
     if (this.socket && this.socket.readyState === 1) { // WebSocket.OPEN = 1
       this.socket.send(JSON.stringify(message));
@@ -203,9 +323,11 @@ class WebSocketManager {
       this.reconnectAttempts++;
       console.log(`🔄 Intentando reconectar WebSocket... (${this.reconnectAttempts}/${this.maxReconnectAttempts})`);
       
+      // Espera creciente con componente aleatoria: tras un corte los clientes no se reconectan todos a la vez
+      const delay = 3000 * this.reconnectAttempts + Math.random() * 2000;
       setTimeout(() => {
         this.connect(this.token);
-      }, 3000);
+      }, delay);
     } else {
       console.log('❌ Máximo de intentos de reconexión alcanzado. WebSocket deshabilitado.');
     }
@@ -224,6 +346,8 @@ class WebSocketManager {
     
     // Clear all listeners
     this.listeners.clear();
+    this.cursor = null;
+    localStorage.removeItem(CURSOR_KEY);
   }
 
   addListener(type: string, callback: MessageListener): void {